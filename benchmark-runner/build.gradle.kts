@@ -0,0 +1,78 @@
+plugins {
+    java
+    application
+}
+
+dependencies {
+    implementation(project(":common"))
+    implementation("com.fasterxml.jackson.core:jackson-databind:2.17.1")
+    implementation("com.fasterxml.jackson.datatype:jackson-datatype-jsr310:2.17.1")
+}
+
+application {
+    mainClass.set("net.protsenko.benchmark.BenchmarkRunner")
+}
+
+val benchmarkedApps = listOf("mock-server", "sync-module", "webflux-module", "loom-module")
+
+// ./gradlew :benchmark-runner:benchmark -Pbenchmark.concurrency=1,16,64 -Pbenchmark.batch-sizes=1,50
+// ./gradlew :benchmark-runner:benchmark -Pbenchmark.mock-nodes=1,2,4   (throughput vs downstream node count)
+// ./gradlew :benchmark-runner:benchmark -Pbenchmark.downstream=loopback   (no TCP hop: framework + concurrency cost only)
+tasks.register<JavaExec>("benchmark") {
+    group = "benchmark"
+    description = "Boots the mock server and every module, sweeps load levels and writes a comparison report"
+
+    dependsOn(benchmarkedApps.map { ":$it:bootJar" })
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set(application.mainClass)
+
+    doFirst {
+        benchmarkedApps.forEach { app ->
+            val jar = project(":$app").tasks.getByName("bootJar").outputs.files.singleFile
+            systemProperty("benchmark.jar.$app", jar.absolutePath)
+        }
+        systemProperty("benchmark.output", layout.buildDirectory.dir("benchmark").get().asFile.absolutePath)
+        project.properties
+            .filterKeys { it.startsWith("benchmark.") }
+            .forEach { (key, value) -> systemProperty(key, value.toString()) }
+    }
+}
+
+// ./gradlew :benchmark-runner:searchBenchmark -Pbenchmark.search.sizes=10000,100000
+tasks.register<JavaExec>("searchBenchmark") {
+    group = "benchmark"
+    description = "Measures in-memory search index query latency against catalog size"
+
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("net.protsenko.benchmark.SearchIndexBenchmark")
+    maxHeapSize = "2g"
+
+    doFirst {
+        systemProperty("benchmark.output", layout.buildDirectory.dir("benchmark").get().asFile.absolutePath)
+        project.properties
+            .filterKeys { it.startsWith("benchmark.") }
+            .forEach { (key, value) -> systemProperty(key, value.toString()) }
+    }
+}
+
+// ./gradlew :benchmark-runner:storageBenchmark -Pbenchmark.shards=1,2,4 -Pbenchmark.storage.products=20000
+tasks.register<JavaExec>("storageBenchmark") {
+    group = "benchmark"
+    description = "Measures product ingest and batch-read throughput against storage shard count"
+
+    val modules = listOf("sync-module", "webflux-module", "loom-module")
+    dependsOn(modules.map { ":$it:bootJar" })
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("net.protsenko.benchmark.StorageBenchmark")
+
+    doFirst {
+        modules.forEach { app ->
+            val jar = project(":$app").tasks.getByName("bootJar").outputs.files.singleFile
+            systemProperty("benchmark.jar.$app", jar.absolutePath)
+        }
+        systemProperty("benchmark.output", layout.buildDirectory.dir("benchmark").get().asFile.absolutePath)
+        project.properties
+            .filterKeys { it.startsWith("benchmark.") }
+            .forEach { (key, value) -> systemProperty(key, value.toString()) }
+    }
+}
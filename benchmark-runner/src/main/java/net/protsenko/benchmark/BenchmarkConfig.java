@@ -0,0 +1,58 @@
+package net.protsenko.benchmark;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runner settings, read from {@code benchmark.*} system properties.
+ */
+public record BenchmarkConfig(
+        List<String> modules,
+        List<Integer> concurrencyLevels,
+        List<Integer> batchSizes,
+        Duration warmup,
+        Duration duration,
+        int mockLatencyMinMs,
+        int mockLatencyMaxMs,
+        List<Integer> mockNodes,
+        boolean loopback,
+        long productIdRange,
+        Path outputDir) {
+
+    public static BenchmarkConfig fromSystemProperties() {
+        String[] latency = System.getProperty("benchmark.mock-latency", "50-150").split("-");
+        return new BenchmarkConfig(
+                csv(System.getProperty("benchmark.modules", "sync-module,webflux-module,loom-module")),
+                csv(System.getProperty("benchmark.concurrency", "1,16,64,256")).stream()
+                        .map(Integer::parseInt).toList(),
+                csv(System.getProperty("benchmark.batch-sizes", "1,10,100")).stream()
+                        .map(Integer::parseInt).toList(),
+                Duration.parse("PT" + System.getProperty("benchmark.warmup", "10s")),
+                Duration.parse("PT" + System.getProperty("benchmark.duration", "30s")),
+                Integer.parseInt(latency[0].trim()),
+                Integer.parseInt(latency[latency.length - 1].trim()),
+                csv(System.getProperty("benchmark.mock-nodes", "1")).stream()
+                        .map(Integer::parseInt).sorted().toList(),
+                "loopback".equalsIgnoreCase(System.getProperty("benchmark.downstream", "http")),
+                Long.parseLong(System.getProperty("benchmark.product-ids", "10000")),
+                Path.of(System.getProperty("benchmark.output", "build/benchmark")));
+    }
+
+    public Path jarOf(String app) {
+        String jar = System.getProperty("benchmark.jar." + app);
+        if (jar == null) {
+            throw new IllegalStateException("No jar configured for " + app
+                    + " (run through the :benchmark-runner:benchmark task or set -Dbenchmark.jar." + app + ")");
+        }
+        return Path.of(jar);
+    }
+
+    private static List<String> csv(String value) {
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .toList();
+    }
+}
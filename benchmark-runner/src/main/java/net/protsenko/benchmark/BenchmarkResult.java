@@ -0,0 +1,24 @@
+package net.protsenko.benchmark;
+
+/**
+ * One cell of the comparison matrix: a module under one concurrency level and batch size,
+ * balancing over {@code mockNodes} downstream instances.
+ */
+public record BenchmarkResult(
+        String module,
+        int mockNodes,
+        int concurrency,
+        int batchSize,
+        long requests,
+        long errors,
+        double requestsPerSecond,
+        double productsPerSecond,
+        double p50Ms,
+        double p90Ms,
+        double p99Ms,
+        double p999Ms,
+        double maxMs,
+        double cpuCores,
+        long maxRssKb,
+        int maxThreads) {
+}
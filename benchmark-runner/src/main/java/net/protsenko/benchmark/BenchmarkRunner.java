@@ -0,0 +1,159 @@
+package net.protsenko.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Boots the mock servers and each product module on random ports, sweeps concurrency
+ * and batch size per module and writes a comparison matrix. With several
+ * {@code benchmark.mock-nodes} counts, every module is run once per count and balances over
+ * that many mock servers, which shows how throughput scales with downstream nodes.
+ * {@code benchmark.downstream=loopback} starts no mock servers: the modules answer downstream
+ * calls in process with the same latency model (reported as 0 mock nodes), which leaves
+ * framework and concurrency cost without the TCP hop.
+ */
+public class BenchmarkRunner {
+
+    private static final Map<String, List<String>> MODULE_JVM_ARGS = Map.of(
+            "sync-module", List.of(),
+            "webflux-module", List.of(),
+            "loom-module", List.of("--enable-preview"));
+
+    private final BenchmarkConfig config;
+    private final HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    public BenchmarkRunner(BenchmarkConfig config) {
+        this.config = config;
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkConfig config = BenchmarkConfig.fromSystemProperties();
+        List<BenchmarkResult> results = new BenchmarkRunner(config).run();
+        new ReportWriter().write(config.outputDir(), config, results);
+        System.out.println("Report written to " + config.outputDir().toAbsolutePath());
+    }
+
+    public List<BenchmarkResult> run() throws Exception {
+        List<BenchmarkResult> results = new ArrayList<>();
+        if (config.loopback()) {
+            List<String> loopbackArgs = List.of("--external.service.mode=loopback",
+                    "--external.loopback.latency-min=" + config.mockLatencyMinMs() + "ms",
+                    "--external.loopback.latency-max=" + config.mockLatencyMaxMs() + "ms");
+            for (String module : config.modules()) {
+                results.addAll(runModule(module, 0, loopbackArgs));
+            }
+            return results;
+        }
+        int maxNodes = config.mockNodes().get(config.mockNodes().size() - 1);
+        List<ManagedProcess> mocks = new ArrayList<>();
+        try {
+            for (int i = 0; i < maxNodes; i++) {
+                String name = maxNodes == 1 ? "mock-server" : "mock-server-" + (i + 1);
+                mocks.add(ManagedProcess.start(name, config.jarOf("mock-server"),
+                        config.outputDir().resolve("logs"), List.of(), List.of()));
+            }
+            for (ManagedProcess mock : mocks) {
+                mock.awaitHealthy(client, "/api/health");
+                configureMockLatency(mock);
+            }
+
+            for (int nodes : config.mockNodes()) {
+                String mockUrls = mocks.subList(0, nodes).stream()
+                        .map(ManagedProcess::baseUrl)
+                        .collect(Collectors.joining(","));
+                for (String module : config.modules()) {
+                    results.addAll(runModule(module, nodes, List.of("--external.service.base-urls=" + mockUrls)));
+                }
+            }
+        } finally {
+            for (ManagedProcess mock : mocks) {
+                mock.close();
+            }
+        }
+        return results;
+    }
+
+    private List<BenchmarkResult> runModule(String module, int mockNodes, List<String> downstreamArgs)
+            throws Exception {
+        List<BenchmarkResult> results = new ArrayList<>();
+        List<String> jvmArgs = MODULE_JVM_ARGS.getOrDefault(module, List.of());
+        List<String> appArgs = new ArrayList<>(downstreamArgs);
+        // Shedding would turn the sweep's high-concurrency points into 503 counts
+        appArgs.add("--admission.enabled=false");
+        appArgs.add("--logging.level.root=WARN");
+        try (ManagedProcess app = ManagedProcess.start(module, config.jarOf(module),
+                config.outputDir().resolve("logs"), jvmArgs, appArgs)) {
+            app.awaitHealthy(client, "/actuator/health");
+            LoadGenerator load = new LoadGenerator(client, app.baseUrl(), config.productIdRange());
+
+            for (int batchSize : config.batchSizes()) {
+                for (int concurrency : config.concurrencyLevels()) {
+                    log("%s: warm-up nodes=%d c=%d batch=%d", module, mockNodes, concurrency, batchSize);
+                    load.run(concurrency, batchSize, config.warmup());
+
+                    log("%s: measuring nodes=%d c=%d batch=%d", module, mockNodes, concurrency, batchSize);
+                    BenchmarkResult result;
+                    try (ProcessSampler sampler = new ProcessSampler(app.pid())) {
+                        LoadGenerator.Outcome outcome = load.run(concurrency, batchSize, config.duration());
+                        result = toResult(module, mockNodes, concurrency, batchSize, outcome, sampler);
+                    }
+                    log("%s: %.1f req/s, p99 %.1f ms, %d errors", module,
+                            result.requestsPerSecond(), result.p99Ms(), result.errors());
+                    results.add(result);
+                }
+            }
+        }
+        return results;
+    }
+
+    private BenchmarkResult toResult(String module, int mockNodes, int concurrency, int batchSize,
+                                     LoadGenerator.Outcome outcome, ProcessSampler sampler) {
+        long[] latencies = outcome.sortedLatencies();
+        double seconds = outcome.elapsed().toNanos() / 1e9;
+        double rps = latencies.length / seconds;
+        return new BenchmarkResult(
+                module,
+                mockNodes,
+                concurrency,
+                batchSize,
+                latencies.length,
+                outcome.errors(),
+                rps,
+                rps * batchSize,
+                LatencyRecorder.percentileMillis(latencies, 50),
+                LatencyRecorder.percentileMillis(latencies, 90),
+                LatencyRecorder.percentileMillis(latencies, 99),
+                LatencyRecorder.percentileMillis(latencies, 99.9),
+                LatencyRecorder.percentileMillis(latencies, 100),
+                sampler.cpuCores(),
+                sampler.maxRssKb(),
+                sampler.maxThreads());
+    }
+
+    private void configureMockLatency(ManagedProcess mock) throws Exception {
+        URI uri = URI.create(mock.baseUrl() + "/api/config/latency?min=" + config.mockLatencyMinMs()
+                + "&max=" + config.mockLatencyMaxMs());
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Mock latency configuration failed: " + response.body());
+        }
+    }
+
+    private static void log(String format, Object... args) {
+        System.out.printf(format + "%n", args);
+    }
+}
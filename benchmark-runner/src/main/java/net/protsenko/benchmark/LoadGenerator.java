@@ -0,0 +1,92 @@
+package net.protsenko.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Closed-loop load: {@code concurrency} virtual threads each issue one request at a time.
+ * Batch size 1 hits {@code GET /{id}/aggregation}, larger batches hit {@code POST /aggregations}.
+ */
+public class LoadGenerator {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final long productIdRange;
+
+    public LoadGenerator(HttpClient client, String baseUrl, long productIdRange) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.productIdRange = productIdRange;
+    }
+
+    public record Outcome(long[] sortedLatencies, long errors, Duration elapsed) {
+    }
+
+    public Outcome run(int concurrency, int batchSize, Duration duration) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+        List<LatencyRecorder> recorders = new ArrayList<>(concurrency);
+        List<Thread> workers = new ArrayList<>(concurrency);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < concurrency; i++) {
+            LatencyRecorder recorder = new LatencyRecorder();
+            recorders.add(recorder);
+            workers.add(Thread.ofVirtual().start(() -> {
+                while (System.nanoTime() < deadline) {
+                    HttpRequest request = nextRequest(batchSize);
+                    long sent = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() / 100 == 2) {
+                            recorder.record(System.nanoTime() - sent);
+                        } else {
+                            errors.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        return new Outcome(LatencyRecorder.mergeSorted(recorders), errors.get(), elapsed);
+    }
+
+    private HttpRequest nextRequest(int batchSize) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (batchSize == 1) {
+            long id = random.nextLong(1, productIdRange + 1);
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/api/products/" + id + "/aggregation"))
+                    .timeout(REQUEST_TIMEOUT)
+                    .GET()
+                    .build();
+        }
+        String body = LongStream.generate(() -> random.nextLong(1, productIdRange + 1))
+                .limit(batchSize)
+                .mapToObj(Long::toString)
+                .collect(Collectors.joining(",", "[", "]"));
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/products/aggregations"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
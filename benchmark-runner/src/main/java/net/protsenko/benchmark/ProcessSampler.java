@@ -0,0 +1,92 @@
+package net.protsenko.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Samples CPU time, RSS and thread count of a child process from Linux procfs.
+ */
+public class ProcessSampler implements AutoCloseable {
+
+    // USER_HZ is 100 on every mainstream Linux configuration
+    private static final double CLOCK_TICKS_PER_SECOND = 100.0;
+    private static final long SAMPLE_INTERVAL_MS = 250;
+
+    private final long pid;
+    private final Thread thread;
+
+    private final long startCpuTicks;
+    private final long startNanos;
+    private volatile long maxRssKb;
+    private volatile int maxThreads;
+    private volatile boolean running = true;
+
+    public ProcessSampler(long pid) {
+        this.pid = pid;
+        this.startCpuTicks = cpuTicks();
+        this.startNanos = System.nanoTime();
+        this.thread = Thread.ofPlatform().daemon().name("sampler-" + pid).start(this::loop);
+    }
+
+    private void loop() {
+        while (running) {
+            sampleStatus();
+            try {
+                Thread.sleep(SAMPLE_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void sampleStatus() {
+        try {
+            List<String> lines = Files.readAllLines(Path.of("/proc", Long.toString(pid), "status"));
+            for (String line : lines) {
+                if (line.startsWith("VmRSS:")) {
+                    maxRssKb = Math.max(maxRssKb, Long.parseLong(line.replaceAll("\\D", "")));
+                } else if (line.startsWith("Threads:")) {
+                    maxThreads = Math.max(maxThreads, Integer.parseInt(line.replaceAll("\\D", "")));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // process gone or procfs unavailable (non-Linux host)
+        }
+    }
+
+    private long cpuTicks() {
+        try {
+            String stat = Files.readString(Path.of("/proc", Long.toString(pid), "stat"));
+            // Fields after the parenthesised command name; utime and stime are fields 14 and 15
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            return Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+        } catch (IOException | RuntimeException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Average CPU usage since construction, in cores (1.0 = one core fully busy).
+     */
+    public double cpuCores() {
+        double cpuSeconds = (cpuTicks() - startCpuTicks) / CLOCK_TICKS_PER_SECOND;
+        double wallSeconds = (System.nanoTime() - startNanos) / 1e9;
+        return wallSeconds > 0 ? cpuSeconds / wallSeconds : 0;
+    }
+
+    public long maxRssKb() {
+        return maxRssKb;
+    }
+
+    public int maxThreads() {
+        return maxThreads;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+    }
+}
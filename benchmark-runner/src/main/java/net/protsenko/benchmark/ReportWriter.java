@@ -0,0 +1,115 @@
+package net.protsenko.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes the comparison matrix as results.json, results.csv and a self-contained report.html.
+ */
+public class ReportWriter {
+
+    private static final String[] COLUMNS = {
+            "module", "mockNodes", "concurrency", "batchSize", "requests", "errors", "requestsPerSecond",
+            "productsPerSecond", "p50Ms", "p90Ms", "p99Ms", "p999Ms", "maxMs", "cpuCores",
+            "maxRssKb", "maxThreads"
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .enable(SerializationFeature.INDENT_OUTPUT);
+
+    public void write(Path outputDir, BenchmarkConfig config, List<BenchmarkResult> results) throws IOException {
+        Files.createDirectories(outputDir);
+        objectMapper.writeValue(outputDir.resolve("results.json").toFile(), Map.of(
+                "generatedAt", Instant.now(),
+                "config", config,
+                "results", results));
+        Files.writeString(outputDir.resolve("results.csv"), csv(results));
+        Files.writeString(outputDir.resolve("report.html"), html(config, results));
+    }
+
+    private String csv(List<BenchmarkResult> results) {
+        StringBuilder sb = new StringBuilder(String.join(",", COLUMNS)).append('\n');
+        for (BenchmarkResult r : results) {
+            sb.append(String.join(",", row(r))).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private String html(BenchmarkConfig config, List<BenchmarkResult> results) {
+        StringBuilder sb = new StringBuilder("""
+                <!DOCTYPE html>
+                <html><head><meta charset="utf-8"><title>JavaWebBenchmark report</title>
+                <style>
+                body { font-family: sans-serif; margin: 2em; }
+                table { border-collapse: collapse; }
+                th, td { border: 1px solid #ccc; padding: 4px 8px; text-align: right; }
+                th { background: #eee; }
+                td.best { background: #d4f7d4; font-weight: bold; }
+                </style></head><body>
+                <h1>JavaWebBenchmark</h1>
+                """);
+        sb.append("<p>Generated ").append(Instant.now())
+                .append(" &middot; warm-up ").append(config.warmup())
+                .append(" &middot; measured ").append(config.duration())
+                .append(" &middot; mock latency ").append(config.mockLatencyMinMs())
+                .append('-').append(config.mockLatencyMaxMs()).append(" ms")
+                .append(config.loopback() ? " (in-process loopback)" : "").append("</p>\n");
+
+        sb.append("<table><tr>");
+        for (String column : COLUMNS) {
+            sb.append("<th>").append(column).append("</th>");
+        }
+        sb.append("</tr>\n");
+        for (BenchmarkResult r : results) {
+            boolean best = results.stream()
+                    .filter(o -> o.mockNodes() == r.mockNodes()
+                            && o.concurrency() == r.concurrency() && o.batchSize() == r.batchSize())
+                    .allMatch(o -> o.productsPerSecond() <= r.productsPerSecond());
+            sb.append("<tr>");
+            String[] cells = row(r);
+            for (int i = 0; i < cells.length; i++) {
+                boolean highlight = best && COLUMNS[i].equals("productsPerSecond");
+                sb.append(highlight ? "<td class=\"best\">" : "<td>").append(cells[i]).append("</td>");
+            }
+            sb.append("</tr>\n");
+        }
+        sb.append("</table>\n<p>Highlighted: highest product throughput for the load level.</p>\n</body></html>\n");
+        return sb.toString();
+    }
+
+    private static String[] row(BenchmarkResult r) {
+        return new String[]{
+                r.module(),
+                Integer.toString(r.mockNodes()),
+                Integer.toString(r.concurrency()),
+                Integer.toString(r.batchSize()),
+                Long.toString(r.requests()),
+                Long.toString(r.errors()),
+                fmt(r.requestsPerSecond()),
+                fmt(r.productsPerSecond()),
+                fmt(r.p50Ms()),
+                fmt(r.p90Ms()),
+                fmt(r.p99Ms()),
+                fmt(r.p999Ms()),
+                fmt(r.maxMs()),
+                fmt(r.cpuCores()),
+                Long.toString(r.maxRssKb()),
+                Integer.toString(r.maxThreads())
+        };
+    }
+
+    private static String fmt(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+}
@@ -0,0 +1,90 @@
+package net.protsenko.benchmark;
+
+import net.protsenko.common.model.Product;
+import net.protsenko.common.search.ProductSearchIndex;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Measures ProductSearchIndex build time and query latency against catalog size on
+ * synthetic products. Writes search-index.csv next to the module benchmark results.
+ */
+public class SearchIndexBenchmark {
+
+    private static final String[] ADJECTIVES = {
+            "wireless", "ergonomic", "compact", "premium", "portable", "smart", "classic", "rugged",
+            "silent", "mechanical", "organic", "waterproof", "vintage", "modular", "ultralight", "digital"
+    };
+    private static final String[] NOUNS = {
+            "keyboard", "mouse", "monitor", "headphones", "speaker", "backpack", "lamp", "chair",
+            "desk", "camera", "charger", "router", "watch", "bottle", "jacket", "tablet"
+    };
+    private static final String[] MATERIALS = {
+            "aluminium", "bamboo", "leather", "steel", "carbon", "wool", "glass", "ceramic"
+    };
+
+    private static final int QUERIES = 2_000;
+    private static final int WARMUP_QUERIES = 2_000;
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = Arrays.stream(System.getProperty("benchmark.search.sizes", "10000,100000,1000000").split(","))
+                .map(String::trim)
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        Path output = Path.of(System.getProperty("benchmark.output", "build/benchmark"));
+
+        StringBuilder csv = new StringBuilder("catalogSize,terms,buildMs,query,p50Us,p99Us,avgHits\n");
+        for (int size : sizes) {
+            SplittableRandom random = new SplittableRandom(42);
+            ProductSearchIndex index = new ProductSearchIndex();
+
+            long buildStart = System.nanoTime();
+            for (long id = 1; id <= size; id++) {
+                index.index(randomProduct(id, random));
+            }
+            long buildMs = (System.nanoTime() - buildStart) / 1_000_000;
+
+            for (String query : new String[]{"keyboard", "wire", "wireless key", "ergo ch bam", "zzz"}) {
+                for (int i = 0; i < WARMUP_QUERIES; i++) {
+                    index.search(query, 20);
+                }
+                long[] latencies = new long[QUERIES];
+                long hits = 0;
+                for (int i = 0; i < QUERIES; i++) {
+                    long start = System.nanoTime();
+                    hits += index.search(query, 20).size();
+                    latencies[i] = System.nanoTime() - start;
+                }
+                Arrays.sort(latencies);
+                String row = String.format(Locale.ROOT, "%d,%d,%d,%s,%.1f,%.1f,%.1f",
+                        size, index.termCount(), buildMs, query,
+                        latencies[QUERIES / 2] / 1e3, latencies[(int) (QUERIES * 0.99)] / 1e3,
+                        (double) hits / QUERIES);
+                System.out.println(row);
+                csv.append(row).append('\n');
+            }
+        }
+        Files.createDirectories(output);
+        Files.writeString(output.resolve("search-index.csv"), csv);
+    }
+
+    private static Product randomProduct(long id, SplittableRandom random) {
+        String name = pick(ADJECTIVES, random) + " " + pick(NOUNS, random) + " " + id;
+        String description = "A " + pick(ADJECTIVES, random) + " " + pick(MATERIALS, random) + " "
+                + pick(NOUNS, random) + " made for everyday use, model " + Long.toHexString(id * 2654435761L);
+        return Product.builder()
+                .id(id)
+                .name(name)
+                .description(description)
+                .build();
+    }
+
+    private static String pick(String[] values, SplittableRandom random) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,220 @@
+package net.protsenko.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Boots each module once per {@code benchmark.shards} count and measures how product ingest
+ * ({@code POST /api/products}) and batch reads ({@code POST /api/products/batch}) scale with the
+ * number of storage shards. Writes storage-results.csv next to the module benchmark results.
+ */
+public class StorageBenchmark {
+
+    private static final Map<String, List<String>> MODULE_JVM_ARGS = Map.of(
+            "sync-module", List.of(),
+            "webflux-module", List.of(),
+            "loom-module", List.of("--enable-preview"));
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final BenchmarkConfig config;
+    private final int products;
+    private final int batchSize;
+    private final int concurrency;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    public StorageBenchmark(BenchmarkConfig config, int products, int batchSize, int concurrency) {
+        this.config = config;
+        this.products = products;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkConfig config = BenchmarkConfig.fromSystemProperties();
+        List<Integer> shardCounts = Arrays.stream(System.getProperty("benchmark.shards", "1,2,4").split(","))
+                .map(String::trim)
+                .map(Integer::parseInt)
+                .toList();
+        StorageBenchmark benchmark = new StorageBenchmark(config,
+                Integer.parseInt(System.getProperty("benchmark.storage.products", "20000")),
+                Integer.parseInt(System.getProperty("benchmark.storage.batch-size", "100")),
+                Integer.parseInt(System.getProperty("benchmark.storage.concurrency", "64")));
+
+        StringBuilder csv = new StringBuilder("module,shards,products,ingestPerSecond,ingestP50Ms,ingestP99Ms,"
+                + "batchSize,batchesPerSecond,productsReadPerSecond,readP50Ms,readP99Ms,errors\n");
+        for (String module : config.modules()) {
+            for (int shards : shardCounts) {
+                String row = benchmark.runModule(module, shards);
+                System.out.println(row);
+                csv.append(row).append('\n');
+            }
+        }
+        Files.createDirectories(config.outputDir());
+        Files.writeString(config.outputDir().resolve("storage-results.csv"), csv);
+        System.out.println("Report written to " + config.outputDir().toAbsolutePath());
+    }
+
+    private String runModule(String module, int shards) throws Exception {
+        List<String> jvmArgs = MODULE_JVM_ARGS.getOrDefault(module, List.of());
+        try (ManagedProcess app = ManagedProcess.start(module + "-shards-" + shards, config.jarOf(module),
+                config.outputDir().resolve("logs"), jvmArgs,
+                List.of("--storage.shards=" + shards, "--admission.enabled=false", "--logging.level.root=WARN"))) {
+            app.awaitHealthy(client, "/actuator/health");
+
+            AtomicLong errors = new AtomicLong();
+            long[] ids = new long[products];
+            long ingestStart = System.nanoTime();
+            long[] ingestLatencies = ingest(app.baseUrl(), ids, errors);
+            double ingestSeconds = (System.nanoTime() - ingestStart) / 1e9;
+            long[] knownIds = Arrays.stream(ids).filter(id -> id != 0).toArray();
+            verifyReadBack(app.baseUrl(), knownIds);
+
+            read(app.baseUrl(), knownIds, config.warmup(), errors);
+            long readStart = System.nanoTime();
+            long[] readLatencies = read(app.baseUrl(), knownIds, config.duration(), errors);
+            double readSeconds = (System.nanoTime() - readStart) / 1e9;
+
+            return String.format(Locale.ROOT, "%s,%d,%d,%.2f,%.2f,%.2f,%d,%.2f,%.2f,%.2f,%.2f,%d",
+                    module, shards, knownIds.length,
+                    ingestLatencies.length / ingestSeconds,
+                    LatencyRecorder.percentileMillis(ingestLatencies, 50),
+                    LatencyRecorder.percentileMillis(ingestLatencies, 99),
+                    batchSize,
+                    readLatencies.length / readSeconds,
+                    readLatencies.length * batchSize / readSeconds,
+                    LatencyRecorder.percentileMillis(readLatencies, 50),
+                    LatencyRecorder.percentileMillis(readLatencies, 99),
+                    errors.get());
+        }
+    }
+
+    /**
+     * Creates {@code products} products from {@code concurrency} workers and stores the
+     * generated ids. Failed inserts leave a zero in {@code ids}.
+     */
+    private long[] ingest(String baseUrl, long[] ids, AtomicLong errors) throws InterruptedException {
+        AtomicLong next = new AtomicLong();
+        URI uri = URI.create(baseUrl + "/api/products");
+        return runWorkers(recorder -> {
+            for (int i; (i = (int) next.getAndIncrement()) < ids.length; ) {
+                String body = "{\"name\":\"storage benchmark " + i + "\",\"description\":\"shard scaling\","
+                        + "\"price\":" + (1 + i % 500) + ".99}";
+                HttpRequest request = HttpRequest.newBuilder(uri)
+                        .timeout(REQUEST_TIMEOUT)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build();
+                long sent = System.nanoTime();
+                try {
+                    HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                    if (response.statusCode() / 100 == 2) {
+                        recorder.record(System.nanoTime() - sent);
+                        ids[i] = objectMapper.readTree(response.body()).path("id").asLong();
+                    } else {
+                        errors.incrementAndGet();
+                    }
+                } catch (IOException e) {
+                    errors.incrementAndGet();
+                }
+            }
+        });
+    }
+
+    /**
+     * Fetches the first, middle and last stored product back. A write that was acknowledged
+     * but not committed fails the run here instead of showing up as read errors.
+     */
+    private void verifyReadBack(String baseUrl, long[] ids) throws IOException, InterruptedException {
+        if (ids.length == 0) {
+            throw new IllegalStateException("No product was stored");
+        }
+        for (long id : new long[]{ids[0], ids[ids.length / 2], ids[ids.length - 1]}) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/products/" + id))
+                    .timeout(REQUEST_TIMEOUT)
+                    .GET()
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200 || objectMapper.readTree(response.body()).path("id").asLong() != id) {
+                throw new IllegalStateException("Product " + id + " was acknowledged but reads back as "
+                        + response.statusCode() + ": " + response.body());
+            }
+        }
+    }
+
+    private long[] read(String baseUrl, long[] ids, Duration duration, AtomicLong errors) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        URI uri = URI.create(baseUrl + "/api/products/batch");
+        return runWorkers(recorder -> {
+            while (System.nanoTime() < deadline) {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                String body = IntStream.range(0, batchSize)
+                        .mapToObj(i -> Long.toString(ids[random.nextInt(ids.length)]))
+                        .collect(Collectors.joining(",", "[", "]"));
+                HttpRequest request = HttpRequest.newBuilder(uri)
+                        .timeout(REQUEST_TIMEOUT)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build();
+                long sent = System.nanoTime();
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() / 100 == 2) {
+                        recorder.record(System.nanoTime() - sent);
+                    } else {
+                        errors.incrementAndGet();
+                    }
+                } catch (IOException e) {
+                    errors.incrementAndGet();
+                }
+            }
+        });
+    }
+
+    private long[] runWorkers(Worker worker) throws InterruptedException {
+        List<LatencyRecorder> recorders = new ArrayList<>(concurrency);
+        List<Thread> threads = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            LatencyRecorder recorder = new LatencyRecorder();
+            recorders.add(recorder);
+            threads.add(Thread.ofVirtual().start(() -> {
+                try {
+                    worker.run(recorder);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return LatencyRecorder.mergeSorted(recorders);
+    }
+
+    @FunctionalInterface
+    private interface Worker {
+        void run(LatencyRecorder recorder) throws InterruptedException;
+    }
+}
@@ -4,6 +4,13 @@ plugins {
 
 dependencies {
     implementation("com.fasterxml.jackson.core:jackson-databind:2.17.1")
+    implementation("io.micrometer:micrometer-core:1.13.0")
+    implementation("org.slf4j:slf4j-api:2.0.13")
+
+    // Provided by the JDBC modules; kept off the classpath of the R2DBC one
+    compileOnly("org.springframework:spring-jdbc:6.1.8")
+    compileOnly("org.springframework:spring-tx:6.1.8")
+    compileOnly("com.zaxxer:HikariCP:5.1.0")
 
     compileOnly("org.projectlombok:lombok:1.18.32")
     annotationProcessor("org.projectlombok:lombok:1.18.32")
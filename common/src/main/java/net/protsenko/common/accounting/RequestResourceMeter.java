@@ -0,0 +1,78 @@
+package net.protsenko.common.accounting;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Samples requests for resource accounting and exports what they cost per endpoint:
+ * {@code request.allocated.bytes} and {@code request.cpu} (microseconds) histograms, tagged
+ * with module, method and route pattern.
+ * <p>
+ * Requests served entirely by threads without counters record no histogram sample. They
+ * count in {@code request.resource.unmeasured} instead. For those modules
+ * {@code jvm.threads.allocated.total}, divided by the request count, still gives an average.
+ */
+public class RequestResourceMeter {
+
+    private final double sampleRate;
+    private final String module;
+    private final MeterRegistry registry;
+
+    public RequestResourceMeter(double sampleRate, String module, MeterRegistry registry) {
+        this.sampleRate = sampleRate;
+        this.module = module;
+        this.registry = registry;
+        FunctionCounter.builder("jvm.threads.allocated.total", this, m -> ResourceAccount.totalAllocatedBytes())
+                .tag("module", module)
+                .baseUnit("bytes")
+                .description("Heap bytes allocated by all threads since start, including virtual threads")
+                .register(registry);
+    }
+
+    /**
+     * @return a fresh account for a sampled request, otherwise {@link ResourceAccount#NOOP}
+     */
+    public ResourceAccount begin() {
+        if (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return ResourceAccount.NOOP;
+        }
+        return new ResourceAccount(true);
+    }
+
+    /**
+     * Records a finished request. Call it after every segment of the request has closed, or
+     * after {@link ResourceAccount#checkpoint} when called from inside one.
+     */
+    public void record(ResourceAccount account, String method, String route) {
+        if (!account.isSampled()) {
+            return;
+        }
+        String[] tags = {"module", module, "method", method, "uri", route};
+        if (account.getUnmeasuredSegments() > 0) {
+            Counter.builder("request.resource.unmeasured")
+                    .tags(tags)
+                    .description("Sampled requests with work on threads that have no allocation/CPU counters")
+                    .register(registry)
+                    .increment();
+        }
+        if (account.getMeasuredSegments() == 0) {
+            return;
+        }
+        DistributionSummary.builder("request.allocated.bytes")
+                .tags(tags)
+                .baseUnit("bytes")
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .register(registry)
+                .record(account.getAllocatedBytes());
+        DistributionSummary.builder("request.cpu")
+                .tags(tags)
+                .baseUnit("microseconds")
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .register(registry)
+                .record(account.getCpuNanos() / 1_000.0);
+    }
+}
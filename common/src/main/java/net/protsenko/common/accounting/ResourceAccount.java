@@ -0,0 +1,196 @@
+package net.protsenko.common.accounting;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Heap bytes allocated and CPU time consumed on behalf of one request, summed over every
+ * thread that worked on it. Each thread contributes through a {@link Segment}. A segment takes
+ * the {@code com.sun.management.ThreadMXBean} counters of the current thread when it opens and
+ * adds the difference when it closes.
+ * <p>
+ * Segments do not nest on a thread. While one is open, {@link #start} returns a no-op. So a
+ * thread is never counted twice, even when the wrapped work calls back into wrapped work.
+ * Threads whose counters are unavailable (virtual threads on current JDKs) add nothing. They
+ * are reported as unmeasured segments instead.
+ * <p>
+ * Unsampled requests share {@link #NOOP}, which measures nothing.
+ */
+public final class ResourceAccount {
+
+    public static final ResourceAccount NOOP = new ResourceAccount(false);
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadMXBean();
+
+    private static final ThreadLocal<ResourceAccount> CURRENT = new ThreadLocal<>();
+
+    private static final ThreadLocal<Segment> OPEN = new ThreadLocal<>();
+
+    private final boolean sampled;
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder cpuNanos = new LongAdder();
+    private final LongAdder measuredSegments = new LongAdder();
+    private final LongAdder unmeasuredSegments = new LongAdder();
+
+    ResourceAccount(boolean sampled) {
+        this.sampled = sampled && THREADS != null;
+    }
+
+    /**
+     * Account bound to the calling thread by the request filter or by a wrapped task, or
+     * {@link #NOOP}.
+     */
+    public static ResourceAccount current() {
+        ResourceAccount account = CURRENT.get();
+        return account != null ? account : NOOP;
+    }
+
+    public static void bind(ResourceAccount account) {
+        CURRENT.set(account);
+    }
+
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    /**
+     * Starts measuring the current thread. Close the returned segment on the same thread.
+     */
+    public Segment start() {
+        if (!sampled || OPEN.get() != null) {
+            return Segment.NONE;
+        }
+        long bytes = THREADS.getCurrentThreadAllocatedBytes();
+        long cpu = THREADS.getCurrentThreadCpuTime();
+        if (bytes < 0 || cpu < 0) {
+            unmeasuredSegments.increment();
+            return Segment.NONE;
+        }
+        Segment segment = new Segment(this, bytes, cpu);
+        OPEN.set(segment);
+        return segment;
+    }
+
+    /**
+     * Adds what this thread's open segment has used so far, if that segment belongs to this
+     * account. Lets a completion callback that still runs inside a segment report totals that
+     * include its own thread.
+     */
+    public void checkpoint() {
+        Segment segment = OPEN.get();
+        if (segment != null && segment.account == this) {
+            segment.checkpoint();
+        }
+    }
+
+    /**
+     * Wraps {@code call} so that the thread running it is measured and has this account bound.
+     * Returns {@code call} itself for unsampled requests.
+     */
+    public <T> Supplier<T> counted(Supplier<T> call) {
+        if (!sampled) {
+            return call;
+        }
+        return () -> {
+            ResourceAccount previous = CURRENT.get();
+            CURRENT.set(this);
+            try (Segment ignored = start()) {
+                return call.get();
+            } finally {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    /**
+     * {@link #counted} for {@link Callable}-based APIs such as structured task scopes.
+     */
+    public <T> Callable<T> countedCall(Callable<T> call) {
+        if (!sampled) {
+            return call;
+        }
+        return () -> {
+            ResourceAccount previous = CURRENT.get();
+            CURRENT.set(this);
+            try (Segment ignored = start()) {
+                return call.call();
+            } finally {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    public long getCpuNanos() {
+        return cpuNanos.sum();
+    }
+
+    public long getMeasuredSegments() {
+        return measuredSegments.sum();
+    }
+
+    public long getUnmeasuredSegments() {
+        return unmeasuredSegments.sum();
+    }
+
+    static long totalAllocatedBytes() {
+        return THREADS != null ? THREADS.getTotalThreadAllocatedBytes() : -1;
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()
+                && threads.isCurrentThreadCpuTimeSupported()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+            threads.setThreadCpuTimeEnabled(true);
+            return threads;
+        }
+        return null;
+    }
+
+    /**
+     * One thread's share of an account, from {@link #start} until {@link #close}.
+     */
+    public static final class Segment implements AutoCloseable {
+
+        static final Segment NONE = new Segment(null, 0, 0);
+
+        private final ResourceAccount account;
+        private long bytesAtStart;
+        private long cpuAtStart;
+
+        private Segment(ResourceAccount account, long bytesAtStart, long cpuAtStart) {
+            this.account = account;
+            this.bytesAtStart = bytesAtStart;
+            this.cpuAtStart = cpuAtStart;
+        }
+
+        @Override
+        public void close() {
+            if (account == null) {
+                return;
+            }
+            OPEN.remove();
+            checkpoint();
+            account.measuredSegments.increment();
+        }
+
+        private void checkpoint() {
+            long bytes = THREADS.getCurrentThreadAllocatedBytes();
+            long cpu = THREADS.getCurrentThreadCpuTime();
+            account.allocatedBytes.add(bytes - bytesAtStart);
+            account.cpuNanos.add(cpu - cpuAtStart);
+            bytesAtStart = bytes;
+            cpuAtStart = cpu;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package net.protsenko.common.admission;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-flight based admission control with priority classes.
+ * Critical requests are always admitted, interactive requests up to {@code maxInFlight},
+ * and bulk requests only while fewer than {@code maxBulkInFlight} of them are running,
+ * which keeps headroom for interactive traffic. Excess requests are shed immediately
+ * instead of queueing behind work that is already late.
+ */
+public class AdmissionController {
+
+    private final int maxInFlight;
+    private final int maxBulkInFlight;
+    private final int retryAfterSeconds;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger bulkInFlight = new AtomicInteger();
+
+    private final Map<RequestClass, LongAdder> admitted = new EnumMap<>(RequestClass.class);
+    private final Map<RequestClass, LongAdder> shed = new EnumMap<>(RequestClass.class);
+
+    public AdmissionController(int maxInFlight, int maxBulkInFlight, int retryAfterSeconds) {
+        this.maxInFlight = maxInFlight;
+        this.maxBulkInFlight = Math.min(maxBulkInFlight, maxInFlight);
+        this.retryAfterSeconds = retryAfterSeconds;
+        for (RequestClass requestClass : RequestClass.values()) {
+            admitted.put(requestClass, new LongAdder());
+            shed.put(requestClass, new LongAdder());
+        }
+    }
+
+    /**
+     * @return true if the request may proceed; it must then be paired with {@link #release}
+     */
+    public boolean tryAdmit(RequestClass requestClass) {
+        boolean ok = switch (requestClass) {
+            case CRITICAL -> true;
+            case INTERACTIVE -> acquire(inFlight, maxInFlight);
+            case BULK -> acquireBulk();
+        };
+        (ok ? admitted : shed).get(requestClass).increment();
+        return ok;
+    }
+
+    public void release(RequestClass requestClass) {
+        switch (requestClass) {
+            case CRITICAL -> {
+            }
+            case INTERACTIVE -> inFlight.decrementAndGet();
+            case BULK -> {
+                bulkInFlight.decrementAndGet();
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private boolean acquireBulk() {
+        if (!acquire(bulkInFlight, maxBulkInFlight)) {
+            return false;
+        }
+        if (!acquire(inFlight, maxInFlight)) {
+            bulkInFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean acquire(AtomicInteger counter, int limit) {
+        while (true) {
+            int current = counter.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getBulkInFlight() {
+        return bulkInFlight.get();
+    }
+
+    public long getAdmittedCount(RequestClass requestClass) {
+        return admitted.get(requestClass).sum();
+    }
+
+    public long getShedCount(RequestClass requestClass) {
+        return shed.get(requestClass).sum();
+    }
+}
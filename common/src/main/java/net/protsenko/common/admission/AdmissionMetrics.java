@@ -0,0 +1,29 @@
+package net.protsenko.common.admission;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Locale;
+
+public final class AdmissionMetrics {
+
+    private AdmissionMetrics() {
+    }
+
+    public static void bind(AdmissionController controller, MeterRegistry registry) {
+        Gauge.builder("admission.in.flight", controller, AdmissionController::getInFlight)
+                .register(registry);
+        Gauge.builder("admission.bulk.in.flight", controller, AdmissionController::getBulkInFlight)
+                .register(registry);
+        for (RequestClass requestClass : RequestClass.values()) {
+            String tag = requestClass.name().toLowerCase(Locale.ROOT);
+            FunctionCounter.builder("admission.requests", controller, c -> c.getAdmittedCount(requestClass))
+                    .tags("class", tag, "outcome", "admitted")
+                    .register(registry);
+            FunctionCounter.builder("admission.requests", controller, c -> c.getShedCount(requestClass))
+                    .tags("class", tag, "outcome", "shed")
+                    .register(registry);
+        }
+    }
+}
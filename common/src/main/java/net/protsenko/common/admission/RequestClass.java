@@ -0,0 +1,49 @@
+package net.protsenko.common.admission;
+
+import java.util.Locale;
+
+/**
+ * Priority class of an incoming request, highest priority first.
+ */
+public enum RequestClass {
+    /**
+     * Health and actuator endpoints; never shed.
+     */
+    CRITICAL,
+    /**
+     * Single-product reads and writes.
+     */
+    INTERACTIVE,
+    /**
+     * Multi-product aggregations and batch lookups.
+     */
+    BULK;
+
+    /**
+     * Classifies by endpoint: actuator and health are critical, {@code POST /aggregations} and
+     * {@code POST /batch} are bulk.
+     */
+    public static RequestClass classify(String method, String path) {
+        if (path.startsWith("/actuator") || path.endsWith("/health")) {
+            return CRITICAL;
+        }
+        if ("POST".equals(method) && (path.endsWith("/aggregations") || path.endsWith("/batch"))) {
+            return BULK;
+        }
+        return INTERACTIVE;
+    }
+
+    /**
+     * @return the class named by {@code value} (case-insensitive), or {@code fallback} if blank or unknown
+     */
+    public static RequestClass parse(String value, RequestClass fallback) {
+        if (value == null || value.isBlank()) {
+            return fallback;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+}
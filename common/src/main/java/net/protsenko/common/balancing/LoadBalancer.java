@@ -0,0 +1,170 @@
+package net.protsenko.common.balancing;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Chooses a downstream node per call with power-of-two-choices. Two random nodes are
+ * compared, and the one with the lower {@code (outstanding + 1) * latency EWMA} wins. The
+ * EWMA of a node decays while it sits idle, so a node that was slow once gets retried later.
+ * <p>
+ * Failing nodes are ejected passively: after {@code ejectAfterFailures} consecutive failures
+ * a node gets no traffic for {@code ejectionDuration}. If every node is ejected, the choice
+ * ignores ejection rather than failing the call.
+ */
+public class LoadBalancer {
+
+    // Weight of the newest sample in the latency EWMA
+    private static final double ALPHA = 0.3;
+
+    private final String name;
+    private final List<Node> nodes;
+    private final double decayNanos;
+    private final long failurePenaltyNanos;
+    private final int ejectAfterFailures;
+    private final long ejectionNanos;
+
+    public LoadBalancer(String name, List<String> baseUrls, LoadBalancerConfig config) {
+        if (baseUrls.isEmpty()) {
+            throw new IllegalArgumentException("No downstream nodes configured for " + name);
+        }
+        this.name = name;
+        this.nodes = baseUrls.stream().map(String::trim).map(Node::new).toList();
+        this.decayNanos = config.decay().toNanos();
+        this.failurePenaltyNanos = config.failurePenalty().toNanos();
+        this.ejectAfterFailures = config.ejectAfterFailures();
+        this.ejectionNanos = config.ejectionDuration().toNanos();
+    }
+
+    public Node choose() {
+        int size = nodes.size();
+        if (size == 1) {
+            return nodes.get(0);
+        }
+        long now = System.nanoTime();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(size);
+        int j = random.nextInt(size - 1);
+        if (j >= i) {
+            j++;
+        }
+        Node a = nodes.get(i);
+        Node b = nodes.get(j);
+        boolean aAvailable = a.isAvailable(now);
+        boolean bAvailable = b.isAvailable(now);
+        if (aAvailable != bAvailable) {
+            return aAvailable ? a : b;
+        }
+        if (!aAvailable) {
+            int start = random.nextInt(size);
+            for (int k = 0; k < size; k++) {
+                Node node = nodes.get((start + k) % size);
+                if (node.isAvailable(now)) {
+                    return node;
+                }
+            }
+        }
+        return a.cost(now) <= b.cost(now) ? a : b;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * One downstream instance. Callers bracket each request with {@link #begin()} and exactly
+     * one of {@link #succeeded}, {@link #failed} or {@link #released}. The EWMA update is not
+     * atomic: concurrent samples can overwrite each other, which is fine for a heuristic.
+     */
+    public final class Node {
+
+        private final String baseUrl;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final LongAdder ejections = new LongAdder();
+        private volatile double ewmaNanos;
+        private volatile long lastSampleNanos = System.nanoTime();
+        // nanoTime can be negative, so "never ejected" is the creation time rather than 0
+        private volatile long ejectedUntilNanos = System.nanoTime();
+
+        private Node(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        /**
+         * @return the start timestamp to pass back on completion
+         */
+        public long begin() {
+            outstanding.incrementAndGet();
+            return System.nanoTime();
+        }
+
+        public void succeeded(long startNanos) {
+            long now = System.nanoTime();
+            sample(now - startNanos, now);
+            consecutiveFailures.set(0);
+            outstanding.decrementAndGet();
+        }
+
+        public void failed(long startNanos) {
+            long now = System.nanoTime();
+            sample(Math.max(now - startNanos, failurePenaltyNanos), now);
+            if (consecutiveFailures.incrementAndGet() >= ejectAfterFailures) {
+                consecutiveFailures.set(0);
+                ejectedUntilNanos = now + ejectionNanos;
+                ejections.increment();
+            }
+            outstanding.decrementAndGet();
+        }
+
+        /**
+         * For calls cancelled before an outcome: frees the slot without a latency sample.
+         */
+        public void released() {
+            outstanding.decrementAndGet();
+        }
+
+        public String getBaseUrl() {
+            return baseUrl;
+        }
+
+        public int getOutstanding() {
+            return outstanding.get();
+        }
+
+        public double getLatencyEwmaMillis() {
+            return ewmaNanos / 1_000_000.0;
+        }
+
+        public boolean isEjected() {
+            return !isAvailable(System.nanoTime());
+        }
+
+        public long getEjectionCount() {
+            return ejections.sum();
+        }
+
+        private boolean isAvailable(long now) {
+            return now - ejectedUntilNanos >= 0;
+        }
+
+        private double cost(long now) {
+            double idle = now - lastSampleNanos;
+            double latency = ewmaNanos * Math.exp(-idle / decayNanos);
+            // The floor keeps outstanding requests as the tie-breaker between cold nodes
+            return (outstanding.get() + 1) * Math.max(latency, 1.0);
+        }
+
+        private void sample(long latencyNanos, long now) {
+            double previous = ewmaNanos;
+            ewmaNanos = previous == 0 ? latencyNanos : previous + ALPHA * (latencyNanos - previous);
+            lastSampleNanos = now;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package net.protsenko.common.balancing;
+
+import java.time.Duration;
+
+/**
+ * @param decay              how fast an idle node's latency estimate decays, so it gets retried
+ * @param failurePenalty     minimum latency a failed call counts as, so fast errors never look cheap
+ * @param ejectAfterFailures consecutive failures that eject a node
+ * @param ejectionDuration   how long an ejected node receives no traffic
+ */
+public record LoadBalancerConfig(Duration decay, Duration failurePenalty, int ejectAfterFailures,
+                                 Duration ejectionDuration) {
+}
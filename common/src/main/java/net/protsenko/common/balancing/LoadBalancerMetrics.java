@@ -0,0 +1,34 @@
+package net.protsenko.common.balancing;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+public final class LoadBalancerMetrics {
+
+    private LoadBalancerMetrics() {
+    }
+
+    /**
+     * Exports, per node, the in-flight calls, the latency EWMA, whether the node is ejected
+     * (0/1) and how often it has been ejected.
+     */
+    public static void bind(LoadBalancer balancer, MeterRegistry registry) {
+        for (LoadBalancer.Node node : balancer.getNodes()) {
+            String[] tags = {"endpoint", balancer.getName(), "node", node.getBaseUrl()};
+            Gauge.builder("external.node.outstanding", node, LoadBalancer.Node::getOutstanding)
+                    .tags(tags)
+                    .register(registry);
+            Gauge.builder("external.node.latency.ewma", node, LoadBalancer.Node::getLatencyEwmaMillis)
+                    .tags(tags)
+                    .baseUnit("milliseconds")
+                    .register(registry);
+            Gauge.builder("external.node.ejected", node, n -> n.isEjected() ? 1 : 0)
+                    .tags(tags)
+                    .register(registry);
+            FunctionCounter.builder("external.node.ejections", node, LoadBalancer.Node::getEjectionCount)
+                    .tags(tags)
+                    .register(registry);
+        }
+    }
+}
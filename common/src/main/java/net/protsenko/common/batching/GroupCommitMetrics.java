@@ -0,0 +1,52 @@
+package net.protsenko.common.batching;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+public final class GroupCommitMetrics {
+
+    private GroupCommitMetrics() {
+    }
+
+    /**
+     * Exports batch size and linger distributions, the queue depth and the number of batches
+     * and items written.
+     */
+    public static void bind(GroupCommitter<?, ?> committer, MeterRegistry registry) {
+        String name = committer.getName();
+        committer.setListener(listener(name, registry));
+        Gauge.builder("group.commit.queued", committer, GroupCommitter::getQueued)
+                .tag("writer", name)
+                .register(registry);
+        FunctionCounter.builder("group.commit.batches", committer, GroupCommitter::getBatchCount)
+                .tag("writer", name)
+                .register(registry);
+        FunctionCounter.builder("group.commit.items", committer, GroupCommitter::getItemCount)
+                .tag("writer", name)
+                .register(registry);
+    }
+
+    /**
+     * Batch size and linger recording on its own, for pipelines that batch by other means.
+     */
+    public static GroupCommitter.BatchListener listener(String name, MeterRegistry registry) {
+        DistributionSummary batchSize = DistributionSummary.builder("group.commit.batch.size")
+                .tag("writer", name)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        Timer linger = Timer.builder("group.commit.linger")
+                .tag("writer", name)
+                .description("How long the oldest item of a batch waited before the batch was written")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        return (size, lingerNanos) -> {
+            batchSize.record(size);
+            linger.record(lingerNanos, TimeUnit.NANOSECONDS);
+        };
+    }
+}
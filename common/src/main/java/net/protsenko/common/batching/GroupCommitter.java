@@ -0,0 +1,214 @@
+package net.protsenko.common.batching;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Turns concurrent single writes into micro-batches. Callers hand their item to one drainer
+ * thread and block. The drainer collects items until the batch holds {@code maxBatchSize}
+ * or its oldest item has waited {@code maxLinger}. It then passes the whole batch to the
+ * writer, typically one transaction. Each caller gets back its own result, or the batch's
+ * failure.
+ * <p>
+ * While a batch is being written, new items queue up and form the next batch, so batches
+ * grow with load without anyone waiting out the linger. The bounded queue applies
+ * backpressure: once it is full, callers block on the handoff.
+ * <p>
+ * An inline committer has no drainer. Each caller writes a batch of one on its own thread.
+ */
+public class GroupCommitter<T, R> implements AutoCloseable {
+
+    /**
+     * Called after every written batch with its size and how long its oldest item waited.
+     */
+    @FunctionalInterface
+    public interface BatchListener {
+        void batchWritten(int size, long lingerNanos);
+    }
+
+    private record Pending<T, R>(T item, long enqueuedAt, CompletableFuture<R> result) {
+    }
+
+    private final String name;
+    private final Function<List<T>, List<R>> writer;
+    private final int maxBatchSize;
+    private final long maxLingerNanos;
+    private final BlockingQueue<Pending<T, R>> queue;
+    private final Thread drainer;
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder itemCount = new LongAdder();
+    private volatile BatchListener listener = (size, lingerNanos) -> {
+    };
+    private volatile boolean closed;
+
+    private GroupCommitter(String name, Function<List<T>, List<R>> writer, int maxBatchSize, Duration maxLinger,
+                           int queueCapacity, ThreadFactory threadFactory) {
+        this.name = name;
+        this.writer = writer;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLingerNanos = maxLinger.toNanos();
+        if (threadFactory == null) {
+            this.queue = null;
+            this.drainer = null;
+        } else {
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.drainer = threadFactory.newThread(this::drain);
+            this.drainer.start();
+        }
+    }
+
+    /**
+     * @param writer writes a batch and returns one result per item, in order
+     */
+    public static <T, R> GroupCommitter<T, R> batching(String name, Function<List<T>, List<R>> writer,
+                                                        int maxBatchSize, Duration maxLinger, int queueCapacity,
+                                                        ThreadFactory threadFactory) {
+        if (maxBatchSize < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("maxBatchSize and queueCapacity must be positive");
+        }
+        return new GroupCommitter<>(name, writer, maxBatchSize, maxLinger, queueCapacity, threadFactory);
+    }
+
+    public static <T, R> GroupCommitter<T, R> inline(String name, Function<List<T>, List<R>> writer) {
+        return new GroupCommitter<>(name, writer, 1, Duration.ZERO, 0, null);
+    }
+
+    /**
+     * Blocks until the batch containing {@code item} has been written.
+     */
+    public R submit(T item) {
+        if (drainer == null) {
+            R result = writer.apply(List.of(item)).get(0);
+            recordBatch(1, 0);
+            return result;
+        }
+        if (closed) {
+            throw new IllegalStateException("Group commit " + name + " is closed");
+        }
+        Pending<T, R> pending = new Pending<>(item, System.nanoTime(), new CompletableFuture<>());
+        try {
+            queue.put(pending);
+            // close() may have drained the queue just before this item arrived
+            if (closed && queue.remove(pending)) {
+                throw new IllegalStateException("Group commit " + name + " is closed");
+            }
+            return pending.result().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for group commit " + name, e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Group commit " + name + " failed", e.getCause());
+        }
+    }
+
+    public void setListener(BatchListener listener) {
+        this.listener = listener;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isBatching() {
+        return drainer != null;
+    }
+
+    public int getQueued() {
+        return queue != null ? queue.size() : 0;
+    }
+
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    public long getItemCount() {
+        return itemCount.sum();
+    }
+
+    /**
+     * Stops the drainer. Items that are still queued fail instead of being written.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        if (drainer == null) {
+            return;
+        }
+        drainer.interrupt();
+        drainer.join();
+        failQueued(new IllegalStateException("Group commit " + name + " is closed"));
+    }
+
+    private void drain() {
+        List<Pending<T, R>> batch = new ArrayList<>(maxBatchSize);
+        while (!closed) {
+            try {
+                batch.add(queue.take());
+                long deadline = batch.get(0).enqueuedAt() + maxLingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    // Items that queued up during the previous write join without waiting
+                    if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    Pending<T, R> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                IllegalStateException closing = new IllegalStateException("Group commit " + name + " is closed");
+                batch.forEach(pending -> pending.result().completeExceptionally(closing));
+                return;
+            }
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<Pending<T, R>> batch) {
+        long lingerNanos = System.nanoTime() - batch.get(0).enqueuedAt();
+        List<T> items = new ArrayList<>(batch.size());
+        for (Pending<T, R> pending : batch) {
+            items.add(pending.item());
+        }
+        try {
+            List<R> results = writer.apply(items);
+            if (results.size() != batch.size()) {
+                throw new IllegalStateException("Writer returned " + results.size() + " results for "
+                        + batch.size() + " items");
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(results.get(i));
+            }
+        } catch (RuntimeException | Error e) {
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+        }
+        recordBatch(batch.size(), lingerNanos);
+    }
+
+    private void recordBatch(int size, long lingerNanos) {
+        batchCount.increment();
+        itemCount.add(size);
+        listener.batchWritten(size, lingerNanos);
+    }
+
+    private void failQueued(Exception cause) {
+        for (Pending<T, R> pending; (pending = queue.poll()) != null; ) {
+            pending.result().completeExceptionally(cause);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package net.protsenko.common.hotkeys;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Count-min sketch over long keys with periodic aging: after {@code sampleSize} increments every
+ * counter is halved, so estimates follow recent popularity rather than all-time totals.
+ */
+public class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+    };
+
+    private final AtomicIntegerArray counters;
+    private final int widthMask;
+    private final long sampleSize;
+    private final AtomicLong additions = new AtomicLong();
+
+    public FrequencySketch(int expectedKeys) {
+        int width = Integer.highestOneBit(Math.max(64, expectedKeys) - 1) << 1;
+        this.counters = new AtomicIntegerArray(width * DEPTH);
+        this.widthMask = width - 1;
+        this.sampleSize = 10L * width;
+    }
+
+    /**
+     * @return the estimated frequency of {@code key} after counting this occurrence
+     */
+    public int increment(long key) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, counters.incrementAndGet(index(row, key)));
+        }
+        if (additions.incrementAndGet() % sampleSize == 0) {
+            age();
+        }
+        return min;
+    }
+
+    public int estimate(long key) {
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, counters.get(index(row, key)));
+        }
+        return min;
+    }
+
+    /**
+     * Halves every counter. Concurrent increments may be lost, which only skews the estimate down.
+     */
+    public void age() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, counters.get(i) >>> 1);
+        }
+    }
+
+    private int index(int row, long key) {
+        long hash = (key + SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+        hash ^= hash >>> 32;
+        return row * (widthMask + 1) + ((int) hash & widthMask);
+    }
+}
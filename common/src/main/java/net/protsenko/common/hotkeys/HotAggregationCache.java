@@ -0,0 +1,66 @@
+package net.protsenko.common.hotkeys;
+
+import net.protsenko.common.model.ProductAggregation;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Prefetched aggregations of the current hot products. Only the refresher writes here,
+ * so the cache never grows beyond the hot set.
+ */
+public class HotAggregationCache {
+
+    private record Entry(ProductAggregation aggregation, long refreshedAtNanos) {
+    }
+
+    private final long ttlNanos;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+
+    public HotAggregationCache(Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * @return the cached aggregation if it is younger than the TTL, otherwise null
+     */
+    public ProductAggregation getFresh(long productId) {
+        Entry entry = entries.get(productId);
+        if (entry == null || System.nanoTime() - entry.refreshedAtNanos() >= ttlNanos) {
+            return null;
+        }
+        hits.increment();
+        return entry.aggregation();
+    }
+
+    public void put(ProductAggregation aggregation) {
+        entries.put(aggregation.getProductId(), new Entry(aggregation, System.nanoTime()));
+    }
+
+    /**
+     * @return true if the entry is missing or older than {@code refreshAfter}
+     */
+    public boolean needsRefresh(long productId, Duration refreshAfter) {
+        Entry entry = entries.get(productId);
+        return entry == null || System.nanoTime() - entry.refreshedAtNanos() >= refreshAfter.toNanos();
+    }
+
+    public void retainOnly(Collection<Long> productIds) {
+        Set<Long> keep = new HashSet<>(productIds);
+        entries.keySet().removeIf(id -> !keep.contains(id));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+}
@@ -0,0 +1,29 @@
+package net.protsenko.common.hotkeys;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+public final class HotKeyMetrics {
+
+    private HotKeyMetrics() {
+    }
+
+    public static void bind(HotKeyTracker tracker, HotAggregationCache cache, RefreshPlanner planner,
+                            MeterRegistry registry) {
+        Gauge.builder("hotkeys.candidates", tracker, HotKeyTracker::getCandidateCount)
+                .register(registry);
+        Gauge.builder("hotkeys.cached", cache, HotAggregationCache::size)
+                .register(registry);
+        FunctionCounter.builder("hotkeys.recorded", tracker, HotKeyTracker::getRecordedCount)
+                .register(registry);
+        FunctionCounter.builder("hotkeys.cache.hits", cache, HotAggregationCache::getHitCount)
+                .register(registry);
+        FunctionCounter.builder("hotkeys.refreshes", planner, RefreshPlanner::getPlannedCount)
+                .register(registry);
+        FunctionCounter.builder("hotkeys.refresh.downstream.calls", planner, RefreshPlanner::getDownstreamCallCount)
+                .register(registry);
+        FunctionCounter.builder("hotkeys.refreshes.over.budget", planner, RefreshPlanner::getSkippedCount)
+                .register(registry);
+    }
+}
@@ -0,0 +1,88 @@
+package net.protsenko.common.hotkeys;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks the top-K most requested product ids.
+ * Every request increments the sketch; ids whose estimate reaches the current top-K threshold
+ * become candidates. {@link #topK()} re-ranks the candidates and trims them, so the candidate
+ * set stays a small multiple of K regardless of key-space size.
+ */
+public class HotKeyTracker {
+
+    private final boolean enabled;
+    private final int k;
+    private final FrequencySketch sketch;
+    private final Map<Long, Boolean> candidates = new ConcurrentHashMap<>();
+    private final LongAdder recorded = new LongAdder();
+
+    // Estimate of the K-th hottest key at the last ranking; ids below it are not candidates
+    private volatile int admissionThreshold = 1;
+    private volatile List<Long> hottest = List.of();
+
+    public HotKeyTracker(boolean enabled, int k, int expectedKeys) {
+        this.enabled = enabled;
+        this.k = k;
+        this.sketch = new FrequencySketch(expectedKeys);
+    }
+
+    public void record(long productId) {
+        if (!enabled) {
+            return;
+        }
+        recorded.increment();
+        int estimate = sketch.increment(productId);
+        if (estimate >= admissionThreshold && candidates.size() < 4 * k) {
+            candidates.putIfAbsent(productId, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Ranks the candidates by current estimate and returns the hottest K ids, hottest first.
+     */
+    public List<Long> topK() {
+        List<Long> ranked = new ArrayList<>(candidates.keySet());
+        ranked.sort(Comparator.comparingInt((Long id) -> sketch.estimate(id)).reversed());
+
+        List<Long> top = List.copyOf(ranked.subList(0, Math.min(k, ranked.size())));
+        for (int i = 2 * k; i < ranked.size(); i++) {
+            candidates.remove(ranked.get(i));
+        }
+        admissionThreshold = top.size() < k ? 1 : Math.max(1, sketch.estimate(top.get(top.size() - 1)));
+        hottest = top;
+        return top;
+    }
+
+    /**
+     * Drops the ids from the candidates and the last ranking, e.g. after synthetic traffic.
+     * Their sketch counts decay like any other.
+     */
+    public void forget(Collection<Long> productIds) {
+        Set<Long> forgotten = Set.copyOf(productIds);
+        candidates.keySet().removeAll(forgotten);
+        hottest = hottest.stream().filter(id -> !forgotten.contains(id)).toList();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public List<Long> getHottest() {
+        return hottest;
+    }
+
+    public int getCandidateCount() {
+        return candidates.size();
+    }
+
+    public long getRecordedCount() {
+        return recorded.sum();
+    }
+}
@@ -0,0 +1,75 @@
+package net.protsenko.common.hotkeys;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides, once per refresh round, which hot aggregations to re-fetch.
+ * Ids come hottest first and the round stops at the downstream-call budget, so under a tight
+ * budget the hottest products stay fresh and the tail expires.
+ */
+public class RefreshPlanner {
+
+    // inventory + pricing + reviews
+    public static final int CALLS_PER_AGGREGATION = 3;
+
+    private final HotKeyTracker tracker;
+    private final HotAggregationCache cache;
+    private final Duration refreshAfter;
+    private final int maxRefreshesPerRound;
+
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private final LongAdder planned = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    public RefreshPlanner(HotKeyTracker tracker, HotAggregationCache cache, Duration refreshAfter,
+                          int downstreamCallsPerRound) {
+        this.tracker = tracker;
+        this.cache = cache;
+        this.refreshAfter = refreshAfter;
+        this.maxRefreshesPerRound = Math.max(1, downstreamCallsPerRound / CALLS_PER_AGGREGATION);
+    }
+
+    /**
+     * @return ids to refresh now; each must be reported back through {@link #done}
+     */
+    public List<Long> plan() {
+        List<Long> hot = tracker.topK();
+        cache.retainOnly(hot);
+
+        List<Long> due = new ArrayList<>();
+        for (Long id : hot) {
+            if (inFlight.contains(id) || !cache.needsRefresh(id, refreshAfter)) {
+                continue;
+            }
+            if (due.size() >= maxRefreshesPerRound) {
+                skipped.increment();
+                continue;
+            }
+            inFlight.add(id);
+            due.add(id);
+        }
+        planned.add(due.size());
+        return due;
+    }
+
+    public void done(Long productId) {
+        inFlight.remove(productId);
+    }
+
+    public long getPlannedCount() {
+        return planned.sum();
+    }
+
+    public long getDownstreamCallCount() {
+        return planned.sum() * CALLS_PER_AGGREGATION;
+    }
+
+    public long getSkippedCount() {
+        return skipped.sum();
+    }
+}
@@ -0,0 +1,54 @@
+package net.protsenko.common.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Pull parser for a JSON array of integers, such as a request body of product ids. The stream
+ * is read token by token into a {@code long[]} that the caller supplies. No boxed list of the
+ * whole body is built, and the caller can act on each chunk while the rest is still arriving.
+ */
+public final class JsonLongArrayReader implements Closeable {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private final JsonParser parser;
+    private boolean finished;
+
+    public JsonLongArrayReader(InputStream in) throws IOException {
+        this.parser = FACTORY.createParser(in);
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new JsonParseException(parser, "Expected a JSON array of ids");
+        }
+    }
+
+    /**
+     * Fills {@code chunk} from index 0 and returns the number of ids read, or 0 once the array
+     * has ended. Blocks until the chunk is full or the closing bracket arrives.
+     */
+    public int read(long[] chunk) throws IOException {
+        int count = 0;
+        while (!finished && count < chunk.length) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.END_ARRAY) {
+                finished = true;
+            } else if (token == JsonToken.VALUE_NUMBER_INT) {
+                chunk[count++] = parser.getLongValue();
+            } else {
+                throw new JsonParseException(parser, "Expected an integer id but got " + token);
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
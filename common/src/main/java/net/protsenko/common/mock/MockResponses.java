@@ -0,0 +1,73 @@
+package net.protsenko.common.mock;
+
+import net.protsenko.common.model.ExternalResponses;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+/**
+ * Data model of the mock downstreams, shared by the mock server and the in-process loopback
+ * clients so both answer with the same distributions.
+ */
+public final class MockResponses {
+
+    private MockResponses() {
+    }
+
+    public static ExternalResponses.InventoryResponse randomInventory(long productId, Random random) {
+        return inventory(productId, random.nextInt(1000), random.nextInt(5));
+    }
+
+    public static ExternalResponses.InventoryResponse inventory(long productId, long stockCount, long warehouse) {
+        return ExternalResponses.InventoryResponse.builder()
+                .productId(productId)
+                .stockCount((int) stockCount)
+                .warehouseLocation("Warehouse-" + (char) ('A' + warehouse))
+                .build();
+    }
+
+    /**
+     * Inverse of the warehouse encoding in {@link #inventory}, 0 for A.
+     */
+    public static long warehouse(ExternalResponses.InventoryResponse response) {
+        String location = response.getWarehouseLocation();
+        return location.charAt(location.length() - 1) - 'A';
+    }
+
+    public static ExternalResponses.PricingResponse randomPricing(long productId, Random random) {
+        BigDecimal currentPrice = BigDecimal.valueOf(10 + random.nextDouble() * 990)
+                .setScale(2, RoundingMode.HALF_UP);
+        BigDecimal discountPercent = BigDecimal.valueOf(random.nextDouble() * 30)
+                .setScale(1, RoundingMode.HALF_UP);
+        return pricing(productId, currentPrice, discountPercent);
+    }
+
+    public static ExternalResponses.PricingResponse pricing(long productId, BigDecimal currentPrice,
+                                                            BigDecimal discountPercent) {
+        return ExternalResponses.PricingResponse.builder()
+                .productId(productId)
+                .currentPrice(currentPrice)
+                .discountPercent(discountPercent)
+                .build();
+    }
+
+    public static ExternalResponses.ReviewsResponse randomReviews(long productId, Random random) {
+        return reviews(productId, 1 + random.nextDouble() * 4, random.nextInt(5000));
+    }
+
+    public static ExternalResponses.ReviewsResponse reviews(long productId, double averageRating, long reviewCount) {
+        return ExternalResponses.ReviewsResponse.builder()
+                .productId(productId)
+                .averageRating(averageRating)
+                .reviewCount((int) reviewCount)
+                .build();
+    }
+
+    /**
+     * Uniform delay in [minMs, maxMs], as the mock server draws it.
+     */
+    public static int randomDelayMs(int minMs, int maxMs, Random random) {
+        return minMs + random.nextInt(maxMs - minMs + 1);
+    }
+}
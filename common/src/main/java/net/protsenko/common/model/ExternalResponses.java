@@ -1,5 +1,6 @@
 package net.protsenko.common.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -7,35 +8,45 @@ import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 
+/**
+ * Downstream responses. {@code fallback} marks values the circuit breaker substituted for a
+ * real response; it never appears on the wire.
+ */
 public class ExternalResponses {
 
     @Data
-    @Builder
+    @Builder(toBuilder = true)
     @NoArgsConstructor
     @AllArgsConstructor
     public static class InventoryResponse {
         private Long productId;
         private Integer stockCount;
         private String warehouseLocation;
+        @JsonIgnore
+        private boolean fallback;
     }
 
     @Data
-    @Builder
+    @Builder(toBuilder = true)
     @NoArgsConstructor
     @AllArgsConstructor
     public static class PricingResponse {
         private Long productId;
         private BigDecimal currentPrice;
         private BigDecimal discountPercent;
+        @JsonIgnore
+        private boolean fallback;
     }
 
     @Data
-    @Builder
+    @Builder(toBuilder = true)
     @NoArgsConstructor
     @AllArgsConstructor
     public static class ReviewsResponse {
         private Long productId;
         private Double averageRating;
         private Integer reviewCount;
+        @JsonIgnore
+        private boolean fallback;
     }
 }
\ No newline at end of file
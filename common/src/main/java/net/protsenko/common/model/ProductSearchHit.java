@@ -0,0 +1,17 @@
+package net.protsenko.common.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchHit {
+    private Product product;
+
+    // Only set when the search asked for enrichment
+    private ProductAggregation aggregation;
+}
@@ -0,0 +1,202 @@
+package net.protsenko.common.ranking;
+
+import net.protsenko.common.model.ProductAggregation;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Incrementally maintained ordering of the latest aggregation per product, by effective
+ * price and by rating. Each update is O(log n). Price-range and top-rated queries need no
+ * downstream calls: O(log n + k) to walk the range, plus O(k log limit) to rank a price range
+ * by discount.
+ * <p>
+ * Effective price is {@code currentPrice * (1 - discountPercent / 100)}, kept in cents.
+ * <p>
+ * Aggregation accepts any client-supplied id, so the index holds at most {@code maxEntries}
+ * products. Past that, the products that entered the index first are evicted.
+ */
+public class AggregationRankIndex {
+
+    private record Entry(long productId, long insertion, long effectivePriceCents, double discountPercent,
+                         double rating, ProductAggregation aggregation) {
+    }
+
+    // A product's place in the eviction order; stale once the product was evicted or re-inserted
+    private record Insertion(long productId, long sequence) {
+    }
+
+    private static final Comparator<Entry> BY_PRICE = Comparator
+            .comparingLong(Entry::effectivePriceCents)
+            .thenComparingLong(Entry::productId);
+
+    private static final Comparator<Entry> BY_RATING_DESC = Comparator
+            .comparingDouble(Entry::rating).reversed()
+            .thenComparingLong(Entry::productId);
+
+    private static final Comparator<Entry> BY_DISCOUNT_DESC = Comparator
+            .comparingDouble(Entry::discountPercent).reversed()
+            .thenComparingLong(Entry::productId);
+
+    private static final BigDecimal MAX_CENTS = BigDecimal.valueOf(Long.MAX_VALUE);
+    private static final BigDecimal MIN_CENTS = BigDecimal.valueOf(Long.MIN_VALUE);
+
+    private final Map<Long, Entry> latest = new ConcurrentHashMap<>();
+    private final NavigableSet<Entry> byPrice = new ConcurrentSkipListSet<>(BY_PRICE);
+    private final NavigableSet<Entry> byRating = new ConcurrentSkipListSet<>(BY_RATING_DESC);
+
+    private final int maxEntries;
+    private final Queue<Insertion> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicLong insertions = new AtomicLong();
+    private final LongAdder evictions = new LongAdder();
+
+    public AggregationRankIndex(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Replaces the product's entry. Aggregations without pricing (e.g. a circuit breaker
+     * fallback) remove the product from the price ordering but keep its rating.
+     */
+    public void update(ProductAggregation aggregation) {
+        if (aggregation == null || aggregation.getProductId() == null) {
+            return;
+        }
+        long productId = aggregation.getProductId();
+        long effectivePriceCents = effectivePriceCents(aggregation);
+        double discount = aggregation.getDiscountPercent() != null
+                ? aggregation.getDiscountPercent().doubleValue() : 0.0;
+        double rating = aggregation.getAverageRating() != null ? aggregation.getAverageRating() : Double.NaN;
+        // Per-key compute serialises concurrent updates of one product across both sets
+        latest.compute(productId, (id, previous) -> {
+            long insertion;
+            if (previous != null) {
+                insertion = previous.insertion();
+                byPrice.remove(previous);
+                byRating.remove(previous);
+            } else {
+                insertion = insertions.incrementAndGet();
+                insertionOrder.add(new Insertion(productId, insertion));
+            }
+            Entry entry = new Entry(productId, insertion, effectivePriceCents, discount, rating, aggregation);
+            if (effectivePriceCents >= 0) {
+                byPrice.add(entry);
+            }
+            if (!Double.isNaN(rating)) {
+                byRating.add(entry);
+            }
+            return entry;
+        });
+        while (latest.size() > maxEntries && evictOldest()) {
+            evictions.increment();
+        }
+    }
+
+    public void remove(long productId) {
+        latest.computeIfPresent(productId, (id, previous) -> {
+            byPrice.remove(previous);
+            byRating.remove(previous);
+            return null;
+        });
+    }
+
+    /**
+     * Products whose effective price lies in [min, max], highest discount first. An inverted
+     * range is empty.
+     */
+    public List<ProductAggregation> priceRange(BigDecimal min, BigDecimal max, int limit) {
+        if (limit <= 0 || min.compareTo(max) > 0) {
+            return List.of();
+        }
+        Entry from = new Entry(Long.MIN_VALUE, 0, toCents(min), 0, 0, null);
+        Entry to = new Entry(Long.MAX_VALUE, 0, toCents(max), 0, 0, null);
+
+        // Min-heap on discount keeps the best `limit` entries seen so far
+        PriorityQueue<Entry> best = new PriorityQueue<>(limit + 1, BY_DISCOUNT_DESC.reversed());
+        for (Entry entry : byPrice.subSet(from, true, to, true)) {
+            best.offer(entry);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Entry> ranked = new ArrayList<>(best);
+        ranked.sort(BY_DISCOUNT_DESC);
+        return ranked.stream().map(Entry::aggregation).toList();
+    }
+
+    public List<ProductAggregation> topRated(int limit) {
+        return byRating.stream()
+                .limit(Math.max(0, limit))
+                .map(Entry::aggregation)
+                .toList();
+    }
+
+    public int size() {
+        return latest.size();
+    }
+
+    public long getEvictedCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Removes the product that entered the index first, skipping stale insertions.
+     *
+     * @return false if there was nothing left to evict
+     */
+    private boolean evictOldest() {
+        for (Insertion oldest; (oldest = insertionOrder.poll()) != null; ) {
+            boolean[] evicted = new boolean[1];
+            long sequence = oldest.sequence();
+            latest.computeIfPresent(oldest.productId(), (id, entry) -> {
+                if (entry.insertion() != sequence) {
+                    return entry;
+                }
+                byPrice.remove(entry);
+                byRating.remove(entry);
+                evicted[0] = true;
+                return null;
+            });
+            if (evicted[0]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long effectivePriceCents(ProductAggregation aggregation) {
+        if (aggregation.getCurrentPrice() == null) {
+            return -1;
+        }
+        BigDecimal discount = aggregation.getDiscountPercent() != null
+                ? aggregation.getDiscountPercent() : BigDecimal.ZERO;
+        BigDecimal factor = BigDecimal.ONE.subtract(discount.movePointLeft(2));
+        return toCents(aggregation.getCurrentPrice().multiply(factor));
+    }
+
+    /**
+     * Saturates at the long range, so an absurd bound or price cannot fail a query.
+     */
+    private static long toCents(BigDecimal amount) {
+        BigDecimal cents = amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP);
+        if (cents.compareTo(MAX_CENTS) >= 0) {
+            return Long.MAX_VALUE;
+        }
+        if (cents.compareTo(MIN_CENTS) <= 0) {
+            return Long.MIN_VALUE;
+        }
+        return cents.longValue();
+    }
+}
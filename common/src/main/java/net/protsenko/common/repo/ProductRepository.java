@@ -4,10 +4,16 @@ import net.protsenko.common.model.Product;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface ProductRepository {
     Product save(Product product);
 
+    /**
+     * Saves every product as one write, returning the saved products in the given order.
+     */
+    List<Product> saveAll(List<Product> products);
+
     Optional<Product> findById(Long id);
 
     List<Product> findAll();
@@ -19,4 +25,9 @@ public interface ProductRepository {
     void deleteAll();
 
     long count();
+
+    /**
+     * Visits every product without holding the whole table in memory.
+     */
+    void forEach(Consumer<Product> action);
 }
\ No newline at end of file
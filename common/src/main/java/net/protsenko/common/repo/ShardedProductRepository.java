@@ -0,0 +1,243 @@
+package net.protsenko.common.repo;
+
+import com.zaxxer.hikari.HikariDataSource;
+import net.protsenko.common.accounting.ResourceAccount;
+import net.protsenko.common.model.Product;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.Closeable;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Products spread over N independent datasources by {@code id mod N}. Each shard generates
+ * its own ids as {@code sequence * N + shard}, so every id routes to its shard without a
+ * lookup. New products go to the shards round-robin.
+ * <p>
+ * Reads that touch several shards are scattered across the executor and gathered in shard
+ * order. Like {@code findAllByIdIn}, they do not keep the order of the requested ids. Shard
+ * writes do not join a surrounding JPA transaction: a single save auto-commits, and a batch
+ * commits in one local transaction per shard it touches, not one overall.
+ */
+public class ShardedProductRepository implements ProductRepository, Closeable {
+
+    private static final String COLUMNS = "id, name, description, price, created_at";
+
+    private static final String SCHEMA = """
+            CREATE TABLE IF NOT EXISTS products (
+                id BIGINT PRIMARY KEY,
+                name VARCHAR(255) NOT NULL,
+                description VARCHAR(1000),
+                price DECIMAL(10,2),
+                created_at TIMESTAMP
+            )""";
+
+    private static final String UPSERT =
+            "MERGE INTO products (" + COLUMNS + ") KEY (id) VALUES (?, ?, ?, ?, ?)";
+
+    // Keeps IN lists within what the database plans efficiently
+    private static final int MAX_IN_LIST = 1000;
+
+    private static final RowMapper<Product> ROW_MAPPER = (rs, rowNum) -> {
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        return Product.builder()
+                .id(rs.getLong("id"))
+                .name(rs.getString("name"))
+                .description(rs.getString("description"))
+                .price(rs.getBigDecimal("price"))
+                .createdAt(createdAt != null ? createdAt.toInstant() : null)
+                .build();
+    };
+
+    private final List<HikariDataSource> dataSources;
+    private final List<JdbcTemplate> shards;
+    private final List<TransactionTemplate> shardTransactions;
+    private final List<AtomicLong> sequences;
+    private final AtomicLong nextShard = new AtomicLong();
+    private final ExecutorService scatterExecutor;
+
+    public ShardedProductRepository(List<HikariDataSource> dataSources, ExecutorService scatterExecutor) {
+        this.dataSources = dataSources;
+        this.scatterExecutor = scatterExecutor;
+        this.shards = new ArrayList<>(dataSources.size());
+        this.shardTransactions = new ArrayList<>(dataSources.size());
+        this.sequences = new ArrayList<>(dataSources.size());
+        for (HikariDataSource dataSource : dataSources) {
+            JdbcTemplate shard = new JdbcTemplate(dataSource);
+            shard.execute(SCHEMA);
+            Long maxId = shard.queryForObject("SELECT COALESCE(MAX(id), 0) FROM products", Long.class);
+            shards.add(shard);
+            shardTransactions.add(new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+            sequences.add(new AtomicLong(maxId / dataSources.size()));
+        }
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    @Override
+    public Product save(Product product) {
+        Product saved = withId(product);
+        shards.get(shardOf(saved.getId())).update(UPSERT, toRow(saved));
+        return saved;
+    }
+
+    /**
+     * Assigns ids up front, then writes one JDBC batch per shard, each in its own shard
+     * transaction. If a later shard fails, batches already committed on earlier shards stay.
+     */
+    @Override
+    public List<Product> saveAll(List<Product> products) {
+        List<Product> saved = new ArrayList<>(products.size());
+        Map<Integer, List<Object[]>> rowsByShard = new TreeMap<>();
+        for (Product product : products) {
+            Product withId = withId(product);
+            saved.add(withId);
+            rowsByShard.computeIfAbsent(shardOf(withId.getId()), shard -> new ArrayList<>()).add(toRow(withId));
+        }
+        rowsByShard.forEach((shard, rows) -> shardTransactions.get(shard)
+                .executeWithoutResult(status -> shards.get(shard).batchUpdate(UPSERT, rows)));
+        return saved;
+    }
+
+    @Override
+    public Optional<Product> findById(Long id) {
+        return shards.get(shardOf(id))
+                .query("SELECT " + COLUMNS + " FROM products WHERE id = ?", ROW_MAPPER, id)
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public List<Product> findAll() {
+        List<Callable<List<Product>>> tasks = new ArrayList<>(shards.size());
+        for (JdbcTemplate shard : shards) {
+            tasks.add(() -> shard.query("SELECT " + COLUMNS + " FROM products", ROW_MAPPER));
+        }
+        return gather(tasks);
+    }
+
+    @Override
+    public List<Product> findAllByIds(List<Long> ids) {
+        Map<Integer, List<Long>> idsByShard = new TreeMap<>();
+        for (Long id : ids) {
+            idsByShard.computeIfAbsent(shardOf(id), shard -> new ArrayList<>()).add(id);
+        }
+        List<Callable<List<Product>>> tasks = new ArrayList<>(idsByShard.size());
+        idsByShard.forEach((shard, shardIds) -> tasks.add(() -> findInShard(shards.get(shard), shardIds)));
+        return gather(tasks);
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        shards.get(shardOf(id)).update("DELETE FROM products WHERE id = ?", id);
+    }
+
+    @Override
+    public void deleteAll() {
+        shards.forEach(shard -> shard.update("DELETE FROM products"));
+    }
+
+    @Override
+    public long count() {
+        long count = 0;
+        for (JdbcTemplate shard : shards) {
+            count += shard.queryForObject("SELECT COUNT(*) FROM products", Long.class);
+        }
+        return count;
+    }
+
+    @Override
+    public void forEach(Consumer<Product> action) {
+        for (JdbcTemplate shard : shards) {
+            shard.query("SELECT " + COLUMNS + " FROM products",
+                    (RowCallbackHandler) rs -> action.accept(ROW_MAPPER.mapRow(rs, 0)));
+        }
+    }
+
+    @Override
+    public void close() {
+        scatterExecutor.shutdown();
+        dataSources.forEach(HikariDataSource::close);
+    }
+
+    private Product withId(Product product) {
+        int shardCount = shards.size();
+        Long id = product.getId();
+        if (id == null) {
+            int shard = (int) (nextShard.getAndIncrement() % shardCount);
+            id = sequences.get(shard).incrementAndGet() * shardCount + shard;
+        } else {
+            // An explicit id must never be handed out again by the shard's sequence
+            sequences.get(shardOf(id)).accumulateAndGet(id / shardCount, Math::max);
+        }
+        return Product.builder()
+                .id(id)
+                .name(product.getName())
+                .description(product.getDescription())
+                .price(product.getPrice())
+                .createdAt(product.getCreatedAt() != null ? product.getCreatedAt() : Instant.now())
+                .build();
+    }
+
+    private static Object[] toRow(Product product) {
+        return new Object[]{product.getId(), product.getName(), product.getDescription(), product.getPrice(),
+                Timestamp.from(product.getCreatedAt())};
+    }
+
+    private int shardOf(long id) {
+        return (int) Math.floorMod(id, (long) shards.size());
+    }
+
+    private static List<Product> findInShard(JdbcTemplate shard, List<Long> ids) {
+        List<Product> products = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += MAX_IN_LIST) {
+            List<Long> chunk = ids.subList(from, Math.min(from + MAX_IN_LIST, ids.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            products.addAll(shard.query("SELECT " + COLUMNS + " FROM products WHERE id IN (" + placeholders + ")",
+                    ROW_MAPPER, chunk.toArray()));
+        }
+        return products;
+    }
+
+    private List<Product> gather(List<Callable<List<Product>>> tasks) {
+        try {
+            if (tasks.size() == 1) {
+                return tasks.get(0).call();
+            }
+            ResourceAccount account = ResourceAccount.current();
+            List<Callable<List<Product>>> counted = tasks.stream().map(account::countedCall).toList();
+            List<Product> products = new ArrayList<>();
+            for (Future<List<Product>> future : scatterExecutor.invokeAll(counted)) {
+                products.addAll(future.get());
+            }
+            return products;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while reading shards", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to read shards", e.getCause());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to read shards", e);
+        }
+    }
+}
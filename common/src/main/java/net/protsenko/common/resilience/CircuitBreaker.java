@@ -0,0 +1,115 @@
+package net.protsenko.common.resilience;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Consecutive-failure circuit breaker with half-open probing.
+ * A single instance is shared by every request that targets the same downstream endpoint.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final CircuitBreakerConfig config;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicInteger halfOpenPermits = new AtomicInteger();
+    private final AtomicInteger halfOpenSuccesses = new AtomicInteger();
+    private volatile long openedAtNanos;
+    private volatile long halfOpenSinceNanos;
+
+    private final LongAdder successCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    public CircuitBreaker(String name, CircuitBreakerConfig config) {
+        this.name = name;
+        this.config = config;
+    }
+
+    /**
+     * @return true if the call may go to the downstream, false if it must fail fast
+     */
+    public boolean tryAcquire() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN) {
+            if (System.nanoTime() - openedAtNanos < config.openDuration().toNanos()) {
+                rejectedCount.increment();
+                return false;
+            }
+            if (state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+                startProbing();
+            }
+        }
+        if (halfOpenPermits.incrementAndGet() <= config.halfOpenProbes()) {
+            return true;
+        }
+        // Probes that never reported back (cancelled, lost) must not wedge the breaker half-open
+        if (System.nanoTime() - halfOpenSinceNanos >= config.openDuration().toNanos()) {
+            startProbing();
+        }
+        rejectedCount.increment();
+        return false;
+    }
+
+    public void onSuccess() {
+        successCount.increment();
+        if (state.get() == State.HALF_OPEN) {
+            if (halfOpenSuccesses.incrementAndGet() >= config.halfOpenProbes()
+                    && state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+                consecutiveFailures.set(0);
+            }
+        } else {
+            consecutiveFailures.set(0);
+        }
+    }
+
+    public void onFailure() {
+        failureCount.increment();
+        State current = state.get();
+        if (current == State.HALF_OPEN) {
+            trip(State.HALF_OPEN);
+        } else if (current == State.CLOSED
+                && consecutiveFailures.incrementAndGet() >= config.failureThreshold()) {
+            trip(State.CLOSED);
+        }
+    }
+
+    private void startProbing() {
+        halfOpenSinceNanos = System.nanoTime();
+        halfOpenSuccesses.set(0);
+        halfOpenPermits.set(0);
+    }
+
+    private void trip(State from) {
+        openedAtNanos = System.nanoTime();
+        state.compareAndSet(from, State.OPEN);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public long getSuccessCount() {
+        return successCount.sum();
+    }
+
+    public long getFailureCount() {
+        return failureCount.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+}
@@ -0,0 +1,11 @@
+package net.protsenko.common.resilience;
+
+import java.time.Duration;
+
+/**
+ * @param failureThreshold consecutive failures that open the breaker
+ * @param openDuration     how long the breaker fails fast before letting probes through
+ * @param halfOpenProbes   probe calls allowed (and required to succeed) while half-open
+ */
+public record CircuitBreakerConfig(int failureThreshold, Duration openDuration, int halfOpenProbes) {
+}
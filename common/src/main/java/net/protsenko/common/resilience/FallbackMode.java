@@ -0,0 +1,12 @@
+package net.protsenko.common.resilience;
+
+public enum FallbackMode {
+    /**
+     * Serve the last successful response for the product, or an empty one if none was seen yet.
+     */
+    LAST_KNOWN,
+    /**
+     * Serve a response with only the product id set.
+     */
+    EMPTY
+}
@@ -0,0 +1,35 @@
+package net.protsenko.common.resilience;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+public final class ResilienceMetrics {
+
+    private ResilienceMetrics() {
+    }
+
+    /**
+     * Exports breaker state (0 closed, 1 open, 2 half-open), call outcomes and fallbacks.
+     */
+    public static void bind(ResilientEndpoint<?> endpoint, MeterRegistry registry) {
+        CircuitBreaker breaker = endpoint.getBreaker();
+        String name = breaker.getName();
+
+        Gauge.builder("external.circuit.state", breaker, b -> b.getState().ordinal())
+                .tag("endpoint", name)
+                .register(registry);
+        FunctionCounter.builder("external.circuit.calls", breaker, CircuitBreaker::getSuccessCount)
+                .tags("endpoint", name, "outcome", "success")
+                .register(registry);
+        FunctionCounter.builder("external.circuit.calls", breaker, CircuitBreaker::getFailureCount)
+                .tags("endpoint", name, "outcome", "failure")
+                .register(registry);
+        FunctionCounter.builder("external.circuit.calls", breaker, CircuitBreaker::getRejectedCount)
+                .tags("endpoint", name, "outcome", "rejected")
+                .register(registry);
+        FunctionCounter.builder("external.circuit.fallbacks", endpoint, ResilientEndpoint::getFallbackCount)
+                .tag("endpoint", name)
+                .register(registry);
+    }
+}
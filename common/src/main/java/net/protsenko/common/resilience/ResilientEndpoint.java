@@ -0,0 +1,110 @@
+package net.protsenko.common.resilience;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Circuit breaker plus last-known-value fallback for one downstream endpoint.
+ * Blocking clients use {@link #call}, reactive clients compose the individual steps.
+ */
+public class ResilientEndpoint<T> {
+
+    private final CircuitBreaker breaker;
+    private final FallbackMode fallbackMode;
+    private final LongFunction<T> emptyResponse;
+    private final UnaryOperator<T> asFallback;
+    private final int maxLastKnownEntries;
+
+    private final Map<Long, T> lastKnown = new ConcurrentHashMap<>();
+    private final LongAdder fallbackCount = new LongAdder();
+
+    // Consulted on a last-known miss, e.g. a snapshot from before the restart
+    private volatile LongFunction<T> lastKnownLoader = id -> null;
+
+    /**
+     * @param asFallback marks a copy of a substituted response, so callers can tell it from a
+     *                   real one; the cached last-known value itself stays unmarked
+     */
+    public ResilientEndpoint(String name, CircuitBreakerConfig config, FallbackMode fallbackMode,
+                             int maxLastKnownEntries, LongFunction<T> emptyResponse,
+                             UnaryOperator<T> asFallback) {
+        this.breaker = new CircuitBreaker(name, config);
+        this.fallbackMode = fallbackMode;
+        this.maxLastKnownEntries = maxLastKnownEntries;
+        this.emptyResponse = emptyResponse;
+        this.asFallback = asFallback;
+    }
+
+    public T call(Long productId, Supplier<T> downstreamCall) {
+        if (!breaker.tryAcquire()) {
+            return fallback(productId);
+        }
+        try {
+            T response = downstreamCall.get();
+            onSuccess(productId, response);
+            return response;
+        } catch (RuntimeException e) {
+            return onFailure(productId, e);
+        }
+    }
+
+    public boolean tryAcquire() {
+        return breaker.tryAcquire();
+    }
+
+    public void onSuccess(Long productId, T response) {
+        breaker.onSuccess();
+        if (fallbackMode == FallbackMode.LAST_KNOWN && response != null
+                && (lastKnown.size() < maxLastKnownEntries || lastKnown.containsKey(productId))) {
+            lastKnown.put(productId, response);
+        }
+    }
+
+    public T onFailure(Long productId, Throwable error) {
+        breaker.onFailure();
+        return fallback(productId);
+    }
+
+    public T fallback(Long productId) {
+        fallbackCount.increment();
+        if (fallbackMode == FallbackMode.LAST_KNOWN) {
+            T cached = lastKnown.get(productId);
+            if (cached == null) {
+                cached = lastKnownLoader.apply(productId);
+            }
+            if (cached != null) {
+                return asFallback.apply(cached);
+            }
+        }
+        return asFallback.apply(emptyResponse.apply(productId));
+    }
+
+    /**
+     * Drops last-known responses for the given products, e.g. after synthetic traffic.
+     */
+    public void forget(Collection<Long> productIds) {
+        lastKnown.keySet().removeAll(Set.copyOf(productIds));
+    }
+
+    /**
+     * Source of last-known responses for products not seen since startup; returns null if it
+     * has none.
+     */
+    public void setLastKnownLoader(LongFunction<T> lastKnownLoader) {
+        this.lastKnownLoader = lastKnownLoader;
+    }
+
+    public CircuitBreaker getBreaker() {
+        return breaker;
+    }
+
+    public long getFallbackCount() {
+        return fallbackCount.sum();
+    }
+}
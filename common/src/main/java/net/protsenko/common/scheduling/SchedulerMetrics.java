@@ -0,0 +1,31 @@
+package net.protsenko.common.scheduling;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.protsenko.common.admission.RequestClass;
+
+import java.util.Locale;
+
+public final class SchedulerMetrics {
+
+    private SchedulerMetrics() {
+    }
+
+    public static void bind(WeightedFairScheduler scheduler, MeterRegistry registry) {
+        Gauge.builder("scheduler.slots.in.use", scheduler, WeightedFairScheduler::getInUse)
+                .register(registry);
+        for (RequestClass requestClass : RequestClass.values()) {
+            String tag = requestClass.name().toLowerCase(Locale.ROOT);
+            Gauge.builder("scheduler.queued", scheduler, s -> s.getQueued(requestClass))
+                    .tag("class", tag)
+                    .register(registry);
+            FunctionCounter.builder("scheduler.granted", scheduler, s -> s.getGrantedCount(requestClass))
+                    .tag("class", tag)
+                    .register(registry);
+            FunctionCounter.builder("scheduler.queue.seconds", scheduler, s -> s.getQueueSeconds(requestClass))
+                    .tag("class", tag)
+                    .register(registry);
+        }
+    }
+}
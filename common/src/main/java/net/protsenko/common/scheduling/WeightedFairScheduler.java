@@ -0,0 +1,185 @@
+package net.protsenko.common.scheduling;
+
+import net.protsenko.common.admission.RequestClass;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shares a fixed number of downstream slots (one slot = one product aggregation in flight)
+ * between request classes by weighted fair queuing.
+ * <p>
+ * Each waiter gets a virtual finish tag {@code max(virtualTime, lastTag[class]) + 1 / weight};
+ * a freed slot goes to the queued waiter with the smallest tag, so a class with weight 8
+ * is served eight times as often as a class with weight 1 while both are backlogged, and an
+ * idle class does not accumulate credit. Slots reserved for non-bulk classes are never handed
+ * to bulk waiters, which bounds interactive queueing even when bulk traffic saturates the rest.
+ */
+public class WeightedFairScheduler {
+
+    private final int capacity;
+    private final int bulkCapacity;
+    private final Map<RequestClass, Double> weights;
+
+    private final Map<RequestClass, ArrayDeque<Ticket>> queues = new EnumMap<>(RequestClass.class);
+    private final Map<RequestClass, Double> lastTag = new EnumMap<>(RequestClass.class);
+    private double virtualTime;
+    private int inUse;
+    private int bulkInUse;
+
+    private final Map<RequestClass, LongAdder> granted = new EnumMap<>(RequestClass.class);
+    private final Map<RequestClass, LongAdder> queueNanos = new EnumMap<>(RequestClass.class);
+
+    /**
+     * A queued or granted slot request.
+     */
+    public static final class Ticket {
+        private final RequestClass requestClass;
+        private final Runnable onGrant;
+        private final double tag;
+        private final long enqueuedAt = System.nanoTime();
+        private boolean granted;
+
+        private Ticket(RequestClass requestClass, Runnable onGrant, double tag) {
+            this.requestClass = requestClass;
+            this.onGrant = onGrant;
+            this.tag = tag;
+        }
+
+        public RequestClass getRequestClass() {
+            return requestClass;
+        }
+    }
+
+    public WeightedFairScheduler(int capacity, int reservedForInteractive, Map<RequestClass, Integer> weights) {
+        this.capacity = capacity;
+        this.bulkCapacity = Math.max(1, capacity - reservedForInteractive);
+        this.weights = new EnumMap<>(RequestClass.class);
+        for (RequestClass requestClass : RequestClass.values()) {
+            this.weights.put(requestClass, (double) Math.max(1, weights.getOrDefault(requestClass, 1)));
+            queues.put(requestClass, new ArrayDeque<>());
+            lastTag.put(requestClass, 0.0);
+            granted.put(requestClass, new LongAdder());
+            queueNanos.put(requestClass, new LongAdder());
+        }
+    }
+
+    /**
+     * Queues a slot request; {@code onGrant} runs once the slot is assigned, on the thread
+     * that freed it (or the caller if a slot is free). It must not block.
+     * Every grant must be paired with {@link #release}.
+     */
+    public Ticket acquire(RequestClass requestClass, Runnable onGrant) {
+        Ticket ticket;
+        synchronized (this) {
+            double start = Math.max(virtualTime, lastTag.get(requestClass));
+            ticket = new Ticket(requestClass, onGrant, start + 1.0 / weights.get(requestClass));
+            lastTag.put(requestClass, ticket.tag);
+            queues.get(requestClass).addLast(ticket);
+        }
+        dispatch();
+        return ticket;
+    }
+
+    /**
+     * Blocks the calling thread until a slot is granted.
+     */
+    public void acquire(RequestClass requestClass) throws InterruptedException {
+        CompletableFuture<Void> grant = new CompletableFuture<>();
+        Ticket ticket = acquire(requestClass, () -> grant.complete(null));
+        try {
+            grant.get();
+        } catch (InterruptedException e) {
+            if (!cancel(ticket)) {
+                release(requestClass);
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Removes a waiting ticket.
+     *
+     * @return false if the ticket was already granted, in which case the caller owns the slot
+     */
+    public boolean cancel(Ticket ticket) {
+        synchronized (this) {
+            if (ticket.granted) {
+                return false;
+            }
+            queues.get(ticket.requestClass).remove(ticket);
+            return true;
+        }
+    }
+
+    public void release(RequestClass requestClass) {
+        synchronized (this) {
+            inUse--;
+            if (requestClass == RequestClass.BULK) {
+                bulkInUse--;
+            }
+        }
+        dispatch();
+    }
+
+    private void dispatch() {
+        while (true) {
+            Ticket next;
+            synchronized (this) {
+                next = pickNext();
+                if (next == null) {
+                    return;
+                }
+                queues.get(next.requestClass).pollFirst();
+                next.granted = true;
+                virtualTime = next.tag;
+                inUse++;
+                if (next.requestClass == RequestClass.BULK) {
+                    bulkInUse++;
+                }
+            }
+            granted.get(next.requestClass).increment();
+            queueNanos.get(next.requestClass).add(System.nanoTime() - next.enqueuedAt);
+            next.onGrant.run();
+        }
+    }
+
+    private Ticket pickNext() {
+        if (inUse >= capacity) {
+            return null;
+        }
+        Ticket best = null;
+        for (Map.Entry<RequestClass, ArrayDeque<Ticket>> entry : queues.entrySet()) {
+            Ticket head = entry.getValue().peekFirst();
+            if (head == null || (entry.getKey() == RequestClass.BULK && bulkInUse >= bulkCapacity)) {
+                continue;
+            }
+            if (best == null || head.tag < best.tag) {
+                best = head;
+            }
+        }
+        return best;
+    }
+
+    public synchronized int getInUse() {
+        return inUse;
+    }
+
+    public synchronized int getQueued(RequestClass requestClass) {
+        return queues.get(requestClass).size();
+    }
+
+    public long getGrantedCount(RequestClass requestClass) {
+        return granted.get(requestClass).sum();
+    }
+
+    public double getQueueSeconds(RequestClass requestClass) {
+        return queueNanos.get(requestClass).sum() / 1e9;
+    }
+}
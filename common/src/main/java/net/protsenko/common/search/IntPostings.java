@@ -0,0 +1,49 @@
+package net.protsenko.common.search;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Growable posting list of document ordinals. Ordinals are appended in increasing order,
+ * so the array is always sorted.
+ */
+final class IntPostings {
+
+    private int[] ordinals = new int[4];
+    private int size;
+
+    void add(int ordinal) {
+        if (size > 0 && ordinals[size - 1] == ordinal) {
+            return;
+        }
+        if (size == ordinals.length) {
+            ordinals = Arrays.copyOf(ordinals, size + (size >> 1) + 1);
+        }
+        ordinals[size++] = ordinal;
+    }
+
+    void addTo(BitSet target) {
+        for (int i = 0; i < size; i++) {
+            target.set(ordinals[i]);
+        }
+    }
+
+    /**
+     * Rewrites ordinals through {@code mapping}, dropping those mapped to -1. The mapping is
+     * increasing over the ordinals it keeps, so the list stays sorted.
+     */
+    void remap(int[] mapping) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            int mapped = mapping[ordinals[i]];
+            if (mapped >= 0) {
+                ordinals[kept++] = mapped;
+            }
+        }
+        size = kept;
+    }
+
+    int size() {
+        return size;
+    }
+}
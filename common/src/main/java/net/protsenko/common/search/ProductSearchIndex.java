@@ -0,0 +1,169 @@
+package net.protsenko.common.search;
+
+import net.protsenko.common.model.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over product name and description.
+ * <p>
+ * Documents get dense int ordinals; each term maps to a sorted int posting list and the term
+ * dictionary is sorted, so a prefix is a contiguous range of terms. A query matches products
+ * containing every query token as a prefix of some term (AND of prefix ORs). Re-indexing a
+ * product tombstones its previous ordinal. Once tombstones make up more than half of the
+ * ordinals, the index is compacted in place, so repeated saves of the same products keep it
+ * bounded by twice the live size.
+ */
+public class ProductSearchIndex {
+
+    // Below this many ordinals, tombstones are cheaper to keep than to compact away
+    private static final int MIN_COMPACTION_SIZE = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final NavigableMap<String, IntPostings> terms = new TreeMap<>();
+    private final Map<Long, Integer> ordinalByProductId = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private long[] productIds = new long[1024];
+    private int docCount;
+    private int tombstones;
+
+    public void index(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        Set<String> tokens = tokenize(product.getName());
+        tokens.addAll(tokenize(product.getDescription()));
+
+        lock.writeLock().lock();
+        try {
+            Integer previous = ordinalByProductId.get(product.getId());
+            if (previous != null) {
+                deleted.set(previous);
+                tombstones++;
+                if (docCount >= MIN_COMPACTION_SIZE && tombstones * 2 > docCount) {
+                    compact();
+                }
+            }
+            int ordinal = docCount++;
+            if (ordinal == productIds.length) {
+                productIds = Arrays.copyOf(productIds, ordinal * 2);
+            }
+            productIds[ordinal] = product.getId();
+            ordinalByProductId.put(product.getId(), ordinal);
+            for (String token : tokens) {
+                terms.computeIfAbsent(token, t -> new IntPostings()).add(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return ids of matching products in indexing order, at most {@code limit}
+     */
+    public List<Long> search(String query, int limit) {
+        Set<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            BitSet matches = null;
+            for (String token : tokens) {
+                BitSet tokenMatches = new BitSet(docCount);
+                for (IntPostings postings : terms.subMap(token, true, token + Character.MAX_VALUE, true).values()) {
+                    postings.addTo(tokenMatches);
+                }
+                if (matches == null) {
+                    matches = tokenMatches;
+                } else {
+                    matches.and(tokenMatches);
+                }
+                if (matches.isEmpty()) {
+                    return List.of();
+                }
+            }
+            matches.andNot(deleted);
+
+            List<Long> result = new ArrayList<>(Math.min(limit, matches.cardinality()));
+            for (int ordinal = matches.nextSetBit(0); ordinal >= 0 && result.size() < limit;
+                 ordinal = matches.nextSetBit(ordinal + 1)) {
+                result.add(productIds[ordinal]);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalByProductId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Renumbers live documents densely in their current order and drops tombstoned ordinals
+     * from every posting list. Called with the write lock held.
+     */
+    private void compact() {
+        int[] mapping = new int[docCount];
+        int live = 0;
+        for (int ordinal = 0; ordinal < docCount; ordinal++) {
+            if (deleted.get(ordinal)) {
+                mapping[ordinal] = -1;
+            } else {
+                mapping[ordinal] = live;
+                productIds[live] = productIds[ordinal];
+                ordinalByProductId.put(productIds[live], live);
+                live++;
+            }
+        }
+        terms.values().removeIf(postings -> {
+            postings.remap(mapping);
+            return postings.size() == 0;
+        });
+        deleted.clear();
+        tombstones = 0;
+        docCount = live;
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
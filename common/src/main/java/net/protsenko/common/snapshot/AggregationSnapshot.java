@@ -0,0 +1,299 @@
+package net.protsenko.common.snapshot;
+
+import lombok.extern.slf4j.Slf4j;
+import net.protsenko.common.model.ExternalResponses;
+import net.protsenko.common.model.ProductAggregation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Recently computed aggregations, written periodically to a memory-mapped file so a
+ * restarted instance starts warm instead of sending its whole working set downstream at once.
+ * <p>
+ * At startup the previous file is mapped read-only and nothing is decoded: a lookup is a
+ * binary search over the mapped records, and only the hit is materialised. Entries younger
+ * than {@code maxAge} are served as aggregations ({@link #getFresh}). Older entries can still
+ * seed the circuit breakers' last-known fallbacks ({@link #inventory} and friends).
+ * <p>
+ * Each write merges the live entries with still-fresh restored ones, goes to a temporary file
+ * through a mapped buffer and is moved over the previous snapshot atomically. A crash
+ * mid-write therefore leaves the old file intact. {@link #close()} writes a final snapshot, so
+ * an orderly restart loses nothing.
+ */
+@Slf4j
+public class AggregationSnapshot implements AutoCloseable {
+
+    private record Stamped(ProductAggregation aggregation, long computedAtMillis) {
+    }
+
+    private final boolean enabled;
+    private final Path file;
+    private final long maxAgeMillis;
+    private final int maxEntries;
+
+    private final Map<Long, Stamped> recent = new ConcurrentHashMap<>();
+    // Read-only mapping of the snapshot found at startup; empty if there was none
+    private final ByteBuffer restored;
+    private final int restoredCount;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+    private final AtomicLong lastWrittenCount = new AtomicLong();
+
+    private ScheduledExecutorService timer;
+
+    public AggregationSnapshot(boolean enabled, Path file, Duration maxAge, int maxEntries) {
+        this.enabled = enabled;
+        this.file = file;
+        this.maxAgeMillis = maxAge.toMillis();
+        this.maxEntries = maxEntries;
+        ByteBuffer mapped = enabled ? map(file) : null;
+        int count = mapped != null ? SnapshotFormat.readCount(mapped) : -1;
+        this.restored = count >= 0 ? mapped : ByteBuffer.allocate(0);
+        this.restoredCount = Math.max(count, 0);
+    }
+
+    /**
+     * Writes a snapshot every {@code interval} on a thread from the given factory.
+     */
+    public void start(Duration interval, ThreadFactory threadFactory) {
+        if (!enabled) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        timer.scheduleWithFixedDelay(this::writeQuietly,
+                interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stamps the aggregation as computed now. Callers pass only aggregations built from real
+     * downstream responses, never circuit-breaker fallbacks.
+     */
+    public void record(ProductAggregation aggregation) {
+        if (!enabled || aggregation == null || aggregation.getProductId() == null) {
+            return;
+        }
+        Long productId = aggregation.getProductId();
+        if (recent.size() < maxEntries || recent.containsKey(productId)) {
+            recent.put(productId, new Stamped(aggregation, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Drops live entries, e.g. after synthetic traffic, so they are not written.
+     */
+    public void forget(Collection<Long> productIds) {
+        recent.keySet().removeAll(Set.copyOf(productIds));
+    }
+
+    /**
+     * @return the restored aggregation if it was computed within {@code maxAge}, otherwise null
+     */
+    public ProductAggregation getFresh(long productId) {
+        int record = find(productId);
+        if (record < 0 || SnapshotFormat.computedAtMillis(restored, record) < freshSince()) {
+            return null;
+        }
+        hits.increment();
+        return SnapshotFormat.read(restored, record);
+    }
+
+    /**
+     * Restored inventory of any age, for the last-known fallback; null if unknown.
+     */
+    public ExternalResponses.InventoryResponse inventory(long productId) {
+        ProductAggregation a = restoredAggregation(productId);
+        return a == null || a.getStockCount() == null ? null : ExternalResponses.InventoryResponse.builder()
+                .productId(productId)
+                .stockCount(a.getStockCount())
+                .warehouseLocation(a.getWarehouseLocation())
+                .build();
+    }
+
+    public ExternalResponses.PricingResponse pricing(long productId) {
+        ProductAggregation a = restoredAggregation(productId);
+        return a == null || a.getCurrentPrice() == null ? null : ExternalResponses.PricingResponse.builder()
+                .productId(productId)
+                .currentPrice(a.getCurrentPrice())
+                .discountPercent(a.getDiscountPercent())
+                .build();
+    }
+
+    public ExternalResponses.ReviewsResponse reviews(long productId) {
+        ProductAggregation a = restoredAggregation(productId);
+        return a == null || a.getAverageRating() == null ? null : ExternalResponses.ReviewsResponse.builder()
+                .productId(productId)
+                .averageRating(a.getAverageRating())
+                .reviewCount(a.getReviewCount())
+                .build();
+    }
+
+    /**
+     * Writes live and still-fresh restored entries, sorted by product id, and replaces the
+     * previous snapshot. Live entries past {@code maxAge} are dropped from memory as well.
+     */
+    public synchronized void write() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long freshSince = now - maxAgeMillis;
+        recent.values().removeIf(entry -> entry.computedAtMillis() < freshSince);
+        List<Map.Entry<Long, Stamped>> live = new ArrayList<>(recent.entrySet());
+        live.sort(Map.Entry.comparingByKey(Comparator.naturalOrder()));
+        Set<Long> liveIds = new HashSet<>(live.size() * 2);
+        live.forEach(entry -> liveIds.add(entry.getKey()));
+
+        // Restored records not superseded by a live entry are copied byte for byte
+        int carried = 0;
+        for (int r = 0; r < restoredCount; r++) {
+            if (carriedOver(r, freshSince, liveIds)) {
+                carried++;
+            }
+        }
+        int count = live.size() + carried;
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    SnapshotFormat.HEADER_SIZE + (long) count * SnapshotFormat.RECORD_SIZE);
+            int record = 0;
+            int next = 0;
+            for (int r = 0; r < restoredCount; r++) {
+                if (!carriedOver(r, freshSince, liveIds)) {
+                    continue;
+                }
+                long restoredId = SnapshotFormat.productId(restored, r);
+                for (; next < live.size() && live.get(next).getKey() < restoredId; next++, record++) {
+                    Stamped entry = live.get(next).getValue();
+                    SnapshotFormat.write(out, record, entry.aggregation(), entry.computedAtMillis());
+                }
+                out.put(SnapshotFormat.offset(record++), restored, SnapshotFormat.offset(r),
+                        SnapshotFormat.RECORD_SIZE);
+            }
+            for (; next < live.size(); next++, record++) {
+                Stamped entry = live.get(next).getValue();
+                SnapshotFormat.write(out, record, entry.aggregation(), entry.computedAtMillis());
+            }
+            SnapshotFormat.writeHeader(out, count, now);
+            out.force();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        writes.increment();
+        lastWrittenCount.set(count);
+    }
+
+    @Override
+    public void close() {
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+        writeQuietly();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getRestoredCount() {
+        return restoredCount;
+    }
+
+    public int getRecentCount() {
+        return recent.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getWriteCount() {
+        return writes.sum();
+    }
+
+    public long getWriteFailureCount() {
+        return writeFailures.sum();
+    }
+
+    public long getLastWrittenCount() {
+        return lastWrittenCount.get();
+    }
+
+    private void writeQuietly() {
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            writeFailures.increment();
+            log.warn("Snapshot write to {} failed", file, e);
+        }
+    }
+
+    private boolean carriedOver(int record, long freshSince, Set<Long> liveIds) {
+        return SnapshotFormat.computedAtMillis(restored, record) >= freshSince
+                && !liveIds.contains(SnapshotFormat.productId(restored, record));
+    }
+
+    private ProductAggregation restoredAggregation(long productId) {
+        int record = find(productId);
+        return record >= 0 ? SnapshotFormat.read(restored, record) : null;
+    }
+
+    private long freshSince() {
+        return System.currentTimeMillis() - maxAgeMillis;
+    }
+
+    /**
+     * Binary search over the mapped records.
+     */
+    private int find(long productId) {
+        int low = 0;
+        int high = restoredCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long id = SnapshotFormat.productId(restored, mid);
+            if (id < productId) {
+                low = mid + 1;
+            } else if (id > productId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private static ByteBuffer map(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            // No previous snapshot, or an unreadable one: start cold
+            return null;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package net.protsenko.common.snapshot;
+
+import net.protsenko.common.model.ProductAggregation;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Layout of the snapshot file: a 32-byte header followed by fixed-size records sorted by
+ * product id. A lookup is then a binary search over the mapped file, with no index to build.
+ * <pre>
+ * header: int magic, int version, int recordSize, int count, long writtenAtMillis, long reserved
+ * record: long productId, long computedAtMillis, int presentFields, int stockCount, int reviewCount,
+ *         byte priceScale, byte discountScale, byte locationLength, byte unused,
+ *         long priceUnscaled, long discountUnscaled, double averageRating, byte[48] location (UTF-8)
+ * </pre>
+ * Fields that are null, or do not fit (a price beyond 64 bits, a location over 48 bytes),
+ * are left out of {@code presentFields} and restored as null.
+ */
+final class SnapshotFormat {
+
+    static final int MAGIC = 0x41475331; // "AGS1"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_SIZE = 104;
+
+    private static final int LOCATION_BYTES = 48;
+
+    private static final int STOCK = 1;
+    private static final int LOCATION = 1 << 1;
+    private static final int PRICE = 1 << 2;
+    private static final int DISCOUNT = 1 << 3;
+    private static final int RATING = 1 << 4;
+    private static final int REVIEWS = 1 << 5;
+
+    private SnapshotFormat() {
+    }
+
+    static void writeHeader(ByteBuffer buffer, int count, long writtenAtMillis) {
+        buffer.putInt(0, MAGIC)
+                .putInt(4, VERSION)
+                .putInt(8, RECORD_SIZE)
+                .putInt(12, count)
+                .putLong(16, writtenAtMillis)
+                .putLong(24, 0);
+    }
+
+    /**
+     * @return the record count, or -1 if the buffer does not hold a complete snapshot
+     */
+    static int readCount(ByteBuffer buffer) {
+        if (buffer.capacity() < HEADER_SIZE
+                || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != RECORD_SIZE) {
+            return -1;
+        }
+        int count = buffer.getInt(12);
+        return count >= 0 && buffer.capacity() == HEADER_SIZE + (long) count * RECORD_SIZE ? count : -1;
+    }
+
+    static int offset(int record) {
+        return HEADER_SIZE + record * RECORD_SIZE;
+    }
+
+    static long productId(ByteBuffer buffer, int record) {
+        return buffer.getLong(offset(record));
+    }
+
+    static long computedAtMillis(ByteBuffer buffer, int record) {
+        return buffer.getLong(offset(record) + 8);
+    }
+
+    static void write(ByteBuffer buffer, int record, ProductAggregation aggregation, long computedAtMillis) {
+        int at = offset(record);
+        int present = 0;
+        buffer.putLong(at, aggregation.getProductId());
+        buffer.putLong(at + 8, computedAtMillis);
+        if (aggregation.getStockCount() != null) {
+            present |= STOCK;
+            buffer.putInt(at + 20, aggregation.getStockCount());
+        }
+        if (aggregation.getReviewCount() != null) {
+            present |= REVIEWS;
+            buffer.putInt(at + 24, aggregation.getReviewCount());
+        }
+        if (fits(aggregation.getCurrentPrice())) {
+            present |= PRICE;
+            buffer.put(at + 28, (byte) aggregation.getCurrentPrice().scale());
+            buffer.putLong(at + 32, aggregation.getCurrentPrice().unscaledValue().longValue());
+        }
+        if (fits(aggregation.getDiscountPercent())) {
+            present |= DISCOUNT;
+            buffer.put(at + 29, (byte) aggregation.getDiscountPercent().scale());
+            buffer.putLong(at + 40, aggregation.getDiscountPercent().unscaledValue().longValue());
+        }
+        if (aggregation.getAverageRating() != null) {
+            present |= RATING;
+            buffer.putDouble(at + 48, aggregation.getAverageRating());
+        }
+        if (aggregation.getWarehouseLocation() != null) {
+            byte[] location = aggregation.getWarehouseLocation().getBytes(StandardCharsets.UTF_8);
+            if (location.length <= LOCATION_BYTES) {
+                present |= LOCATION;
+                buffer.put(at + 30, (byte) location.length);
+                buffer.put(at + 56, location);
+            }
+        }
+        buffer.putInt(at + 16, present);
+    }
+
+    static ProductAggregation read(ByteBuffer buffer, int record) {
+        int at = offset(record);
+        int present = buffer.getInt(at + 16);
+        String location = null;
+        if ((present & LOCATION) != 0) {
+            byte[] bytes = new byte[buffer.get(at + 30)];
+            buffer.get(at + 56, bytes);
+            location = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return ProductAggregation.builder()
+                .productId(buffer.getLong(at))
+                .stockCount((present & STOCK) != 0 ? buffer.getInt(at + 20) : null)
+                .warehouseLocation(location)
+                .currentPrice((present & PRICE) != 0
+                        ? BigDecimal.valueOf(buffer.getLong(at + 32), buffer.get(at + 28)) : null)
+                .discountPercent((present & DISCOUNT) != 0
+                        ? BigDecimal.valueOf(buffer.getLong(at + 40), buffer.get(at + 29)) : null)
+                .averageRating((present & RATING) != 0 ? buffer.getDouble(at + 48) : null)
+                .reviewCount((present & REVIEWS) != 0 ? buffer.getInt(at + 24) : null)
+                .build();
+    }
+
+    private static boolean fits(BigDecimal value) {
+        return value != null
+                && value.scale() >= Byte.MIN_VALUE && value.scale() <= Byte.MAX_VALUE
+                && value.unscaledValue().bitLength() < 64;
+    }
+}
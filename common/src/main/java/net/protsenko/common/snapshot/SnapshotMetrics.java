@@ -0,0 +1,30 @@
+package net.protsenko.common.snapshot;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+public final class SnapshotMetrics {
+
+    private SnapshotMetrics() {
+    }
+
+    /**
+     * Exports restored and live entry counts, how many aggregations the restored snapshot
+     * served, and snapshot writes, failed writes and the size of the last one.
+     */
+    public static void bind(AggregationSnapshot snapshot, MeterRegistry registry) {
+        Gauge.builder("snapshot.restored.entries", snapshot, AggregationSnapshot::getRestoredCount)
+                .register(registry);
+        Gauge.builder("snapshot.live.entries", snapshot, AggregationSnapshot::getRecentCount)
+                .register(registry);
+        Gauge.builder("snapshot.written.entries", snapshot, AggregationSnapshot::getLastWrittenCount)
+                .register(registry);
+        FunctionCounter.builder("snapshot.hits", snapshot, AggregationSnapshot::getHitCount)
+                .register(registry);
+        FunctionCounter.builder("snapshot.writes", snapshot, AggregationSnapshot::getWriteCount)
+                .register(registry);
+        FunctionCounter.builder("snapshot.write.failures", snapshot, AggregationSnapshot::getWriteFailureCount)
+                .register(registry);
+    }
+}
@@ -0,0 +1,220 @@
+package net.protsenko.common.trace;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Enqueue, start and end times of the downstream and DB calls made for one request.
+ * <p>
+ * Unsampled requests share {@link #NOOP}. Every method on it returns immediately and
+ * nothing is allocated. A sampled timeline preallocates a fixed number of span slots, and
+ * calls past that are dropped. Slots are written from whichever thread runs the call. They
+ * are read only after the request's work has been joined, which orders the writes before
+ * the read.
+ */
+public final class RequestTimeline {
+
+    public enum Stage {
+        SLOT, DB, INVENTORY, PRICING, REVIEWS;
+
+        public String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    public static final RequestTimeline NOOP = new RequestTimeline(0);
+
+    private static final ThreadLocal<RequestTimeline> CURRENT = new ThreadLocal<>();
+
+    // stage ordinal, enqueue, start, end; times are nanos since origin, 0 means not yet
+    private static final int FIELDS = 4;
+
+    private final long origin = System.nanoTime();
+    private final Instant startedAt;
+    private final int capacity;
+    private final long[] spans;
+    private final AtomicInteger next = new AtomicInteger();
+
+    RequestTimeline(int capacity) {
+        this.capacity = capacity;
+        this.spans = new long[capacity * FIELDS];
+        this.startedAt = capacity > 0 ? Instant.now() : Instant.EPOCH;
+    }
+
+    /**
+     * Timeline bound to the calling thread by the request filter, or {@link #NOOP}. Work
+     * forked to other threads must capture it first.
+     */
+    public static RequestTimeline current() {
+        RequestTimeline timeline = CURRENT.get();
+        return timeline != null ? timeline : NOOP;
+    }
+
+    public static void bind(RequestTimeline timeline) {
+        CURRENT.set(timeline);
+    }
+
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    public boolean isSampled() {
+        return capacity > 0;
+    }
+
+    /**
+     * @return a handle for {@link #start} and {@link #end}, or -1 if unsampled or full
+     */
+    public int enqueue(Stage stage) {
+        if (capacity == 0) {
+            return -1;
+        }
+        int index = next.getAndIncrement();
+        if (index >= capacity) {
+            return -1;
+        }
+        int base = index * FIELDS;
+        spans[base] = stage.ordinal();
+        spans[base + 1] = offset();
+        return index;
+    }
+
+    /**
+     * Enqueues and starts at once, for calls made on the current thread.
+     */
+    public int begin(Stage stage) {
+        int handle = enqueue(stage);
+        start(handle);
+        return handle;
+    }
+
+    public void start(int handle) {
+        if (handle >= 0) {
+            spans[handle * FIELDS + 2] = offset();
+        }
+    }
+
+    /**
+     * Ends the span. A span that was never started counts as pure queueing, which is how
+     * scheduler waits are recorded.
+     */
+    public void end(int handle) {
+        if (handle >= 0) {
+            int base = handle * FIELDS;
+            long now = offset();
+            if (spans[base + 2] == 0) {
+                spans[base + 2] = now;
+            }
+            spans[base + 3] = now;
+        }
+    }
+
+    /**
+     * Wraps {@code call} so that it records start and end on the thread that runs it.
+     * Returns {@code call} itself when there is nothing to record.
+     */
+    public <T> Supplier<T> timed(int handle, Supplier<T> call) {
+        if (handle < 0) {
+            return call;
+        }
+        return () -> {
+            start(handle);
+            try {
+                return call.get();
+            } finally {
+                end(handle);
+            }
+        };
+    }
+
+    /**
+     * {@link #timed} for {@link Callable}-based APIs such as structured task scopes.
+     */
+    public <T> Callable<T> timedCall(int handle, Callable<T> call) {
+        if (handle < 0) {
+            return call;
+        }
+        return () -> {
+            start(handle);
+            try {
+                return call.call();
+            } finally {
+                end(handle);
+            }
+        };
+    }
+
+    Instant startedAt() {
+        return startedAt;
+    }
+
+    long elapsedNanos() {
+        return System.nanoTime() - origin;
+    }
+
+    int dropped() {
+        return Math.max(0, next.get() - capacity);
+    }
+
+    /**
+     * Spans recorded so far, in enqueue order. Calls still running are cut at {@code nowNanos}.
+     * <p>
+     * The critical path is walked backwards from the end of the request. At each step it takes
+     * the span that finished last before the current span was enqueued, i.e. the call it was
+     * waiting for.
+     */
+    List<TraceSpan> spans(long nowNanos) {
+        int count = Math.min(next.get(), capacity);
+        long[] enqueued = new long[count];
+        long[] started = new long[count];
+        long[] ended = new long[count];
+        for (int i = 0; i < count; i++) {
+            int base = i * FIELDS;
+            enqueued[i] = spans[base + 1];
+            started[i] = spans[base + 2] != 0 ? spans[base + 2] : nowNanos;
+            ended[i] = spans[base + 3] != 0 ? spans[base + 3] : nowNanos;
+        }
+
+        boolean[] critical = new boolean[count];
+        long cursor = Long.MAX_VALUE;
+        while (true) {
+            int last = -1;
+            for (int i = 0; i < count; i++) {
+                if (!critical[i] && ended[i] <= cursor && (last < 0 || ended[i] > ended[last])) {
+                    last = i;
+                }
+            }
+            if (last < 0) {
+                break;
+            }
+            critical[last] = true;
+            cursor = enqueued[last];
+        }
+
+        List<TraceSpan> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(new TraceSpan(
+                    Stage.values()[(int) spans[i * FIELDS]].label(),
+                    millis(enqueued[i]),
+                    millis(started[i] - enqueued[i]),
+                    millis(ended[i] - started[i]),
+                    critical[i]));
+        }
+        return result;
+    }
+
+    private long offset() {
+        // Never 0, which marks an unset time
+        return Math.max(1, System.nanoTime() - origin);
+    }
+
+    static double millis(long nanos) {
+        return Math.round(nanos / (double) TimeUnit.MILLISECONDS.toNanos(1) * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,98 @@
+package net.protsenko.common.trace;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Samples request timelines, renders them as a {@code Server-Timing} header, and keeps the
+ * most recent slow ones in a fixed-size ring buffer.
+ */
+public class RequestTracer {
+
+    private final double sampleRate;
+    private final long slowThresholdNanos;
+    private final int maxSpans;
+    private final AtomicReferenceArray<TraceRecord> slowTraces;
+    private final AtomicLong written = new AtomicLong();
+
+    public RequestTracer(double sampleRate, Duration slowThreshold, int maxSpans, int bufferSize) {
+        this.sampleRate = sampleRate;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.maxSpans = maxSpans;
+        this.slowTraces = new AtomicReferenceArray<>(bufferSize);
+    }
+
+    /**
+     * @return a fresh timeline for a sampled request, otherwise {@link RequestTimeline#NOOP}
+     */
+    public RequestTimeline begin() {
+        if (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return RequestTimeline.NOOP;
+        }
+        return new RequestTimeline(maxSpans);
+    }
+
+    /**
+     * One entry per recorded span plus {@code total}, e.g.
+     * {@code slot;dur=0;desc="queue 4.1ms, critical", inventory;dur=52.3;desc="queue 0.2ms, critical", total;dur=57}.
+     */
+    public String serverTiming(RequestTimeline timeline) {
+        long now = timeline.elapsedNanos();
+        StringBuilder header = new StringBuilder();
+        for (TraceSpan span : timeline.spans(now)) {
+            header.append(span.stage())
+                    .append(";dur=").append(format(span.durationMs()))
+                    .append(";desc=\"queue ").append(format(span.queueMs())).append("ms")
+                    .append(span.critical() ? ", critical\"" : "\"")
+                    .append(", ");
+        }
+        return header.append("total;dur=").append(format(RequestTimeline.millis(now))).toString();
+    }
+
+    /**
+     * Closes a sampled timeline and keeps it if it crossed the slow threshold.
+     */
+    public void finish(RequestTimeline timeline, String method, String path, int status) {
+        if (!timeline.isSampled()) {
+            return;
+        }
+        long elapsed = timeline.elapsedNanos();
+        if (elapsed < slowThresholdNanos || slowTraces.length() == 0) {
+            return;
+        }
+        List<TraceSpan> spans = timeline.spans(elapsed);
+        List<String> criticalPath = spans.stream()
+                .filter(TraceSpan::critical)
+                .sorted(Comparator.comparingDouble(TraceSpan::enqueuedAtMs))
+                .map(TraceSpan::stage)
+                .toList();
+        TraceRecord record = new TraceRecord(timeline.startedAt(), method, path, status,
+                RequestTimeline.millis(elapsed), criticalPath, spans, timeline.dropped());
+        slowTraces.set((int) (written.getAndIncrement() % slowTraces.length()), record);
+    }
+
+    /**
+     * @return up to {@code limit} slow traces, newest first
+     */
+    public List<TraceRecord> slowTraces(int limit) {
+        List<TraceRecord> result = new ArrayList<>();
+        for (int i = 0; i < slowTraces.length(); i++) {
+            TraceRecord record = slowTraces.get(i);
+            if (record != null) {
+                result.add(record);
+            }
+        }
+        result.sort(Comparator.comparing(TraceRecord::startedAt).reversed());
+        return result.size() > limit ? result.subList(0, Math.max(0, limit)) : result;
+    }
+
+    private static String format(double millis) {
+        return String.format(Locale.ROOT, "%.3f", millis);
+    }
+}
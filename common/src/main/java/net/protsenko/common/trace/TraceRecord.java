@@ -0,0 +1,12 @@
+package net.protsenko.common.trace;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A finished sampled request. {@code criticalPath} lists the stages of the critical spans
+ * in execution order.
+ */
+public record TraceRecord(Instant startedAt, String method, String path, int status, double totalMs,
+                          List<String> criticalPath, List<TraceSpan> spans, int droppedSpans) {
+}
@@ -0,0 +1,8 @@
+package net.protsenko.common.trace;
+
+/**
+ * One recorded call. Times are in milliseconds. {@code queueMs} is the time from enqueue
+ * to start, and {@code durationMs} the time from start to end.
+ */
+public record TraceSpan(String stage, double enqueuedAtMs, double queueMs, double durationMs, boolean critical) {
+}
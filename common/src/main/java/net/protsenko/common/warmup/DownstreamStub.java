@@ -0,0 +1,97 @@
+package net.protsenko.common.warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import net.protsenko.common.model.ExternalResponses;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * In-process stand-in for the inventory, pricing and reviews services, on a loopback port.
+ * Answers immediately with data derived from the product id. The warm-up then exercises the
+ * real client and JSON code without depending on, or loading, the actual downstreams.
+ */
+public final class DownstreamStub implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private DownstreamStub(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    public static DownstreamStub start() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        DownstreamStub stub = new DownstreamStub(server, executor);
+        server.createContext("/api/", stub::handle);
+        server.setExecutor(executor);
+        server.start();
+        return stub;
+    }
+
+    public String baseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            // /api/{endpoint}/{productId}
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            Object body = path.length == 4 ? response(path[2], path[3]) : null;
+            if (body == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, json.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(json);
+            }
+        }
+    }
+
+    private static Object response(String endpoint, String id) {
+        long productId;
+        try {
+            productId = Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        long seed = Math.abs(productId * 2654435761L);
+        return switch (endpoint) {
+            case "inventory" -> ExternalResponses.InventoryResponse.builder()
+                    .productId(productId)
+                    .stockCount((int) (seed % 1000))
+                    .warehouseLocation("Warehouse-" + (char) ('A' + seed % 5))
+                    .build();
+            case "pricing" -> ExternalResponses.PricingResponse.builder()
+                    .productId(productId)
+                    .currentPrice(BigDecimal.valueOf(1_000 + seed % 99_000, 2))
+                    .discountPercent(BigDecimal.valueOf(seed % 300, 1))
+                    .build();
+            case "reviews" -> ExternalResponses.ReviewsResponse.builder()
+                    .productId(productId)
+                    .averageRating(1 + (seed % 400) / 100.0)
+                    .reviewCount((int) (seed % 5000))
+                    .build();
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,194 @@
+package net.protsenko.common.warmup;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Drives synthetic traffic at the application's own HTTP port in rounds of
+ * {@code roundSize} requests from {@code concurrency} virtual threads. Four in five requests
+ * are {@code GET /api/products/{id}/aggregation}, the rest are {@code POST /aggregations}
+ * batches. Only the single aggregations are timed. Ids are negative, from -1 down to
+ * {@code -syntheticIds}, so the clients can route them to the {@link DownstreamStub} and the
+ * caller can clean up after them.
+ * <p>
+ * Warm-up ends when the median of the last {@code stableRounds} rounds varies by no more than
+ * {@code tolerance}, when the budget runs out, or after a round without a single success.
+ */
+public class WarmupDriver {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private final Duration budget;
+    private final int roundSize;
+    private final int concurrency;
+    private final double tolerance;
+    private final int stableRounds;
+    private final int batchSize;
+    private final int syntheticIds;
+
+    public WarmupDriver(Duration budget, int roundSize, int concurrency, double tolerance, int stableRounds,
+                        int batchSize, int syntheticIds) {
+        this.budget = budget;
+        this.roundSize = roundSize;
+        this.concurrency = concurrency;
+        this.tolerance = tolerance;
+        this.stableRounds = Math.max(2, stableRounds);
+        this.batchSize = batchSize;
+        this.syntheticIds = syntheticIds;
+    }
+
+    private record Round(long[] sortedLatencies, long requests, long errors) {
+
+        double percentileMillis(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))] / 1_000_000.0;
+        }
+    }
+
+    /**
+     * The synthetic ids this driver uses, for cleanup afterwards.
+     */
+    public List<Long> syntheticIds() {
+        return IntStream.rangeClosed(1, syntheticIds).mapToObj(i -> (long) -i).toList();
+    }
+
+    public WarmupReport run(String baseUrl) throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + budget.toNanos();
+        List<Double> medians = new ArrayList<>();
+        Round first = null;
+        Round last = null;
+        long requests = 0;
+        long errors = 0;
+        boolean stabilized = false;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder()
+                    .executor(executor)
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            while (System.nanoTime() < deadline) {
+                Round round = runRound(client, baseUrl, deadline);
+                requests += round.requests();
+                errors += round.errors();
+                if (round.sortedLatencies().length == 0) {
+                    break;
+                }
+                if (first == null) {
+                    first = round;
+                }
+                last = round;
+                medians.add(round.percentileMillis(50));
+                if (isStable(medians)) {
+                    stabilized = true;
+                    break;
+                }
+            }
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        return new WarmupReport(elapsed, medians.size(), requests, errors,
+                first != null ? first.percentileMillis(50) : 0,
+                first != null ? first.percentileMillis(99) : 0,
+                last != null ? last.percentileMillis(50) : 0,
+                last != null ? last.percentileMillis(99) : 0,
+                stabilized);
+    }
+
+    private boolean isStable(List<Double> medians) {
+        if (medians.size() < stableRounds + 1) {
+            return false;
+        }
+        List<Double> recent = medians.subList(medians.size() - stableRounds, medians.size());
+        double min = recent.stream().mapToDouble(Double::doubleValue).min().orElse(0);
+        double max = recent.stream().mapToDouble(Double::doubleValue).max().orElse(0);
+        return max <= min * (1 + tolerance);
+    }
+
+    private Round runRound(HttpClient client, String baseUrl, long deadline) throws InterruptedException {
+        AtomicInteger next = new AtomicInteger();
+        AtomicLong errors = new AtomicLong();
+        List<long[]> latencies = new ArrayList<>(concurrency);
+        List<Thread> workers = new ArrayList<>(concurrency);
+        for (int w = 0; w < concurrency; w++) {
+            long[] timed = new long[roundSize + 1];
+            latencies.add(timed);
+            workers.add(Thread.ofVirtual().start(() -> {
+                int count = 0;
+                for (int i; (i = next.getAndIncrement()) < roundSize && System.nanoTime() < deadline; ) {
+                    boolean single = i % 5 != 4;
+                    long sent = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(single ? single(baseUrl) : batch(baseUrl),
+                                HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() / 100 != 2) {
+                            errors.incrementAndGet();
+                        } else if (single) {
+                            timed[++count] = System.nanoTime() - sent;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                }
+                // Slot 0 holds the number of recorded latencies
+                timed[0] = count;
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        int total = 0;
+        for (long[] timed : latencies) {
+            total += (int) timed[0];
+        }
+        long[] merged = new long[total];
+        int offset = 0;
+        for (long[] timed : latencies) {
+            System.arraycopy(timed, 1, merged, offset, (int) timed[0]);
+            offset += (int) timed[0];
+        }
+        Arrays.sort(merged);
+        return new Round(merged, Math.min(next.get(), roundSize), errors.get());
+    }
+
+    private HttpRequest single(String baseUrl) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/products/" + randomId() + "/aggregation"))
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build();
+    }
+
+    private HttpRequest batch(String baseUrl) {
+        String body = IntStream.range(0, batchSize)
+                .mapToObj(i -> Long.toString(randomId()))
+                .collect(Collectors.joining(",", "[", "]"));
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/products/aggregations"))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private long randomId() {
+        return -(1 + ThreadLocalRandom.current().nextInt(syntheticIds));
+    }
+}
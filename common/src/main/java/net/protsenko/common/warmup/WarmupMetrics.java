@@ -0,0 +1,40 @@
+package net.protsenko.common.warmup;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+public final class WarmupMetrics {
+
+    private WarmupMetrics() {
+    }
+
+    /**
+     * Exports the warm-up duration, rounds, whether latency stabilized (0/1) and the cold and
+     * warm single-aggregation latencies.
+     */
+    public static void bind(WarmupReport report, MeterRegistry registry) {
+        Gauge.builder("warmup.duration", report, r -> r.duration().toMillis())
+                .baseUnit("milliseconds")
+                .register(registry);
+        Gauge.builder("warmup.rounds", report, WarmupReport::rounds)
+                .register(registry);
+        Gauge.builder("warmup.stabilized", report, r -> r.stabilized() ? 1 : 0)
+                .register(registry);
+        Gauge.builder("warmup.latency", report, WarmupReport::coldP50Ms)
+                .tags("phase", "before", "quantile", "0.5")
+                .baseUnit("milliseconds")
+                .register(registry);
+        Gauge.builder("warmup.latency", report, WarmupReport::coldP99Ms)
+                .tags("phase", "before", "quantile", "0.99")
+                .baseUnit("milliseconds")
+                .register(registry);
+        Gauge.builder("warmup.latency", report, WarmupReport::warmP50Ms)
+                .tags("phase", "after", "quantile", "0.5")
+                .baseUnit("milliseconds")
+                .register(registry);
+        Gauge.builder("warmup.latency", report, WarmupReport::warmP99Ms)
+                .tags("phase", "after", "quantile", "0.99")
+                .baseUnit("milliseconds")
+                .register(registry);
+    }
+}
@@ -0,0 +1,19 @@
+package net.protsenko.common.warmup;
+
+import java.time.Duration;
+
+/**
+ * Outcome of a warm-up: how long it ran, and single-aggregation latency in the first round
+ * (cold) and the last round (warm).
+ */
+public record WarmupReport(
+        Duration duration,
+        int rounds,
+        long requests,
+        long errors,
+        double coldP50Ms,
+        double coldP99Ms,
+        double warmP50Ms,
+        double warmP99Ms,
+        boolean stabilized) {
+}
@@ -10,6 +10,7 @@ dependencies {
     // Spring MVC but with virtual threads
     implementation("org.springframework.boot:spring-boot-starter-web")
     implementation("org.springframework.boot:spring-boot-starter-data-jpa")
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
 
     // Database
     runtimeOnly("com.h2database:h2")
@@ -1,48 +1,33 @@
 package net.protsenko.loommodule.client;
 
-import lombok.extern.slf4j.Slf4j;
 import net.protsenko.common.model.ExternalResponses;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestClient;
 
-@Slf4j
-@Component
-public class ExternalServiceClient {
+import java.util.Collection;
 
-    private final RestClient restClient;
+/**
+ * Inventory, pricing and reviews lookups for a product. {@code external.service.mode} selects
+ * the HTTP client ({@code http}, the default) or the in-process {@code loopback}.
+ */
+public interface ExternalServiceClient {
 
-    public ExternalServiceClient(
-            @Value("${external.service.base-url:http://localhost:8090}") String baseUrl) {
-        this.restClient = RestClient.builder()
-                .baseUrl(baseUrl)
-                .build();
-    }
+    ExternalResponses.InventoryResponse getInventory(Long productId);
 
-    public ExternalResponses.InventoryResponse getInventory(Long productId) {
-        log.debug("Calling inventory service for product {} on {}",
-                productId, Thread.currentThread());
-        return restClient.get()
-                .uri("/api/inventory/{productId}", productId)
-                .retrieve()
-                .body(ExternalResponses.InventoryResponse.class);
-    }
+    ExternalResponses.PricingResponse getPricing(Long productId);
+
+    ExternalResponses.ReviewsResponse getReviews(Long productId);
 
-    public ExternalResponses.PricingResponse getPricing(Long productId) {
-        log.debug("Calling pricing service for product {} on {}",
-                productId, Thread.currentThread());
-        return restClient.get()
-                .uri("/api/pricing/{productId}", productId)
-                .retrieve()
-                .body(ExternalResponses.PricingResponse.class);
+    /**
+     * Routes synthetic product ids (negative, never stored) to the given stub instead of the
+     * downstreams; {@code null} switches the routing off again. Without a network hop there
+     * is nothing to route, so the default ignores it.
+     */
+    default void setWarmupTarget(String baseUrl) {
     }
 
-    public ExternalResponses.ReviewsResponse getReviews(Long productId) {
-        log.debug("Calling reviews service for product {} on {}",
-                productId, Thread.currentThread());
-        return restClient.get()
-                .uri("/api/reviews/{productId}", productId)
-                .retrieve()
-                .body(ExternalResponses.ReviewsResponse.class);
+    /**
+     * Drops whatever the client remembers about the given products, such as last-known
+     * fallback responses. The loopback client remembers nothing.
+     */
+    default void forget(Collection<Long> productIds) {
     }
 }
@@ -0,0 +1,169 @@
+package net.protsenko.loommodule.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import net.protsenko.common.balancing.LoadBalancer;
+import net.protsenko.common.balancing.LoadBalancerConfig;
+import net.protsenko.common.balancing.LoadBalancerMetrics;
+import net.protsenko.common.model.ExternalResponses;
+import net.protsenko.common.resilience.CircuitBreakerConfig;
+import net.protsenko.common.resilience.FallbackMode;
+import net.protsenko.common.resilience.ResilienceMetrics;
+import net.protsenko.common.resilience.ResilientEndpoint;
+import net.protsenko.common.snapshot.AggregationSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Calls the downstreams over HTTP, through per-endpoint circuit breakers and load balancers.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "external.service.mode", havingValue = "http", matchIfMissing = true)
+public class HttpExternalServiceClient implements ExternalServiceClient {
+
+    private final RestClient restClient;
+
+    private final ResilientEndpoint<ExternalResponses.InventoryResponse> inventory;
+    private final ResilientEndpoint<ExternalResponses.PricingResponse> pricing;
+    private final ResilientEndpoint<ExternalResponses.ReviewsResponse> reviews;
+
+    private final LoadBalancer inventoryNodes;
+    private final LoadBalancer pricingNodes;
+    private final LoadBalancer reviewsNodes;
+
+    private final LoadBalancerConfig balancerConfig;
+    // Set only while warming up: synthetic (negative) product ids go to the local stub
+    private volatile LoadBalancer warmupNodes;
+
+    public HttpExternalServiceClient(
+            @Value("${external.service.inventory.base-urls:${external.service.base-urls:${external.service.base-url:http://localhost:8090}}}")
+            List<String> inventoryUrls,
+            @Value("${external.service.pricing.base-urls:${external.service.base-urls:${external.service.base-url:http://localhost:8090}}}")
+            List<String> pricingUrls,
+            @Value("${external.service.reviews.base-urls:${external.service.base-urls:${external.service.base-url:http://localhost:8090}}}")
+            List<String> reviewsUrls,
+            @Value("${external.service.read-timeout:2s}") Duration readTimeout,
+            @Value("${external.circuit-breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${external.circuit-breaker.open-duration:10s}") Duration openDuration,
+            @Value("${external.circuit-breaker.half-open-probes:3}") int halfOpenProbes,
+            @Value("${external.circuit-breaker.fallback:last-known}") FallbackMode fallbackMode,
+            @Value("${external.circuit-breaker.last-known-max-entries:100000}") int lastKnownMaxEntries,
+            @Value("${external.load-balancer.decay:10s}") Duration decay,
+            @Value("${external.load-balancer.failure-penalty:1s}") Duration failurePenalty,
+            @Value("${external.load-balancer.eject-after-failures:5}") int ejectAfterFailures,
+            @Value("${external.load-balancer.ejection-duration:10s}") Duration ejectionDuration,
+            AggregationSnapshot snapshot,
+            MeterRegistry meterRegistry) {
+        // Same factory RestClient auto-detects on this classpath (JDK HttpClient); only the timeout is added
+        var requestFactory = new JdkClientHttpRequestFactory();
+        requestFactory.setReadTimeout(readTimeout);
+        this.restClient = RestClient.builder()
+                .requestFactory(requestFactory)
+                .build();
+
+        var breakerConfig = new CircuitBreakerConfig(failureThreshold, openDuration, halfOpenProbes);
+        this.inventory = new ResilientEndpoint<>("inventory", breakerConfig, fallbackMode, lastKnownMaxEntries,
+                id -> ExternalResponses.InventoryResponse.builder().productId(id).build(),
+                response -> response.toBuilder().fallback(true).build());
+        this.pricing = new ResilientEndpoint<>("pricing", breakerConfig, fallbackMode, lastKnownMaxEntries,
+                id -> ExternalResponses.PricingResponse.builder().productId(id).build(),
+                response -> response.toBuilder().fallback(true).build());
+        this.reviews = new ResilientEndpoint<>("reviews", breakerConfig, fallbackMode, lastKnownMaxEntries,
+                id -> ExternalResponses.ReviewsResponse.builder().productId(id).build(),
+                response -> response.toBuilder().fallback(true).build());
+
+        // After a restart, fallbacks can still answer from the previous run's snapshot
+        inventory.setLastKnownLoader(snapshot::inventory);
+        pricing.setLastKnownLoader(snapshot::pricing);
+        reviews.setLastKnownLoader(snapshot::reviews);
+
+        ResilienceMetrics.bind(inventory, meterRegistry);
+        ResilienceMetrics.bind(pricing, meterRegistry);
+        ResilienceMetrics.bind(reviews, meterRegistry);
+
+        this.balancerConfig = new LoadBalancerConfig(decay, failurePenalty, ejectAfterFailures, ejectionDuration);
+        this.inventoryNodes = new LoadBalancer("inventory", inventoryUrls, balancerConfig);
+        this.pricingNodes = new LoadBalancer("pricing", pricingUrls, balancerConfig);
+        this.reviewsNodes = new LoadBalancer("reviews", reviewsUrls, balancerConfig);
+
+        LoadBalancerMetrics.bind(inventoryNodes, meterRegistry);
+        LoadBalancerMetrics.bind(pricingNodes, meterRegistry);
+        LoadBalancerMetrics.bind(reviewsNodes, meterRegistry);
+    }
+
+    @Override
+    public ExternalResponses.InventoryResponse getInventory(Long productId) {
+        log.debug("Calling inventory service for product {} on {}",
+                productId, Thread.currentThread());
+        return inventory.call(productId, () -> balanced(nodesFor(inventoryNodes, productId), baseUrl -> restClient.get()
+                .uri(baseUrl + "/api/inventory/{productId}", productId)
+                .retrieve()
+                .body(ExternalResponses.InventoryResponse.class)));
+    }
+
+    @Override
+    public ExternalResponses.PricingResponse getPricing(Long productId) {
+        log.debug("Calling pricing service for product {} on {}",
+                productId, Thread.currentThread());
+        return pricing.call(productId, () -> balanced(nodesFor(pricingNodes, productId), baseUrl -> restClient.get()
+                .uri(baseUrl + "/api/pricing/{productId}", productId)
+                .retrieve()
+                .body(ExternalResponses.PricingResponse.class)));
+    }
+
+    @Override
+    public ExternalResponses.ReviewsResponse getReviews(Long productId) {
+        log.debug("Calling reviews service for product {} on {}",
+                productId, Thread.currentThread());
+        return reviews.call(productId, () -> balanced(nodesFor(reviewsNodes, productId), baseUrl -> restClient.get()
+                .uri(baseUrl + "/api/reviews/{productId}", productId)
+                .retrieve()
+                .body(ExternalResponses.ReviewsResponse.class)));
+    }
+
+    @Override
+    public void setWarmupTarget(String baseUrl) {
+        this.warmupNodes = baseUrl != null ? new LoadBalancer("warmup", List.of(baseUrl), balancerConfig) : null;
+    }
+
+    @Override
+    public void forget(Collection<Long> productIds) {
+        inventory.forget(productIds);
+        pricing.forget(productIds);
+        reviews.forget(productIds);
+    }
+
+    private LoadBalancer nodesFor(LoadBalancer nodes, Long productId) {
+        LoadBalancer warmup = warmupNodes;
+        return warmup != null && productId < 0 ? warmup : nodes;
+    }
+
+    /**
+     * Sends the request to the node the balancer picks and reports the outcome back to it.
+     */
+    private <T> T balanced(LoadBalancer balancer, Function<String, T> request) {
+        LoadBalancer.Node node = balancer.choose();
+        long start = node.begin();
+        boolean succeeded = false;
+        try {
+            T response = request.apply(node.getBaseUrl());
+            succeeded = true;
+            return response;
+        } finally {
+            if (succeeded) {
+                node.succeeded(start);
+            } else {
+                node.failed(start);
+            }
+        }
+    }
+}
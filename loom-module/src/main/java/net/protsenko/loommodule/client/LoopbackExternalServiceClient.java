@@ -0,0 +1,59 @@
+package net.protsenko.loommodule.client;
+
+import net.protsenko.common.mock.MockResponses;
+import net.protsenko.common.model.ExternalResponses;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers in process with the mock server's data and latency model: no socket, no JSON.
+ * Benchmarks then measure framework and concurrency cost alone. Each response completes a
+ * future on the JDK's shared delay timer, and the caller parks on it, as it would on a socket
+ * read. No thread sleeps per call. Failure injection, capacity and trace replay stay
+ * mock-server features.
+ */
+@Component
+@ConditionalOnProperty(name = "external.service.mode", havingValue = "loopback")
+public class LoopbackExternalServiceClient implements ExternalServiceClient {
+
+    private final int minLatencyMs;
+    private final int maxLatencyMs;
+
+    public LoopbackExternalServiceClient(
+            @Value("${external.loopback.latency-min:50ms}") Duration minLatency,
+            @Value("${external.loopback.latency-max:150ms}") Duration maxLatency) {
+        this.minLatencyMs = (int) minLatency.toMillis();
+        this.maxLatencyMs = (int) Math.max(minLatency.toMillis(), maxLatency.toMillis());
+    }
+
+    @Override
+    public ExternalResponses.InventoryResponse getInventory(Long productId) {
+        return delayed(MockResponses.randomInventory(productId, ThreadLocalRandom.current()));
+    }
+
+    @Override
+    public ExternalResponses.PricingResponse getPricing(Long productId) {
+        return delayed(MockResponses.randomPricing(productId, ThreadLocalRandom.current()));
+    }
+
+    @Override
+    public ExternalResponses.ReviewsResponse getReviews(Long productId) {
+        return delayed(MockResponses.randomReviews(productId, ThreadLocalRandom.current()));
+    }
+
+    private <T> T delayed(T response) {
+        int delayMs = MockResponses.randomDelayMs(minLatencyMs, maxLatencyMs, ThreadLocalRandom.current());
+        if (delayMs <= 0) {
+            return response;
+        }
+        return new CompletableFuture<T>()
+                .completeOnTimeout(response, delayMs, TimeUnit.MILLISECONDS)
+                .join();
+    }
+}
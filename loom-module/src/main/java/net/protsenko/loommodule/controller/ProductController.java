@@ -1,12 +1,24 @@
 package net.protsenko.loommodule.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import lombok.RequiredArgsConstructor;
+import net.protsenko.common.admission.RequestClass;
+import net.protsenko.common.json.JsonLongArrayReader;
 import net.protsenko.common.model.Product;
 import net.protsenko.common.model.ProductAggregation;
+import net.protsenko.common.model.ProductSearchHit;
+import net.protsenko.common.ranking.AggregationRankIndex;
+import net.protsenko.loommodule.service.ProductSearchService;
 import net.protsenko.loommodule.service.LoomProductService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
 import java.util.List;
 
 @RestController
@@ -14,7 +26,18 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ProductController {
 
+    // Overrides the endpoint's default scheduling class: critical, interactive or bulk
+    private static final String REQUEST_CLASS_HEADER = "X-Request-Class";
+
     private final LoomProductService productService;
+    private final ProductSearchService searchService;
+    private final AggregationRankIndex rankIndex;
+
+    @Value("${scheduling.default-class.single:interactive}")
+    private RequestClass singleAggregationClass;
+
+    @Value("${scheduling.default-class.bulk:bulk}")
+    private RequestClass bulkAggregationClass;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -32,13 +55,61 @@ public class ProductController {
         return productService.getAllProducts();
     }
 
+    /**
+     * Products for the given ids; unknown ids are skipped. With sharded storage this is a
+     * scatter-gather read across the shards.
+     */
+    @PostMapping("/batch")
+    public List<Product> getProducts(@RequestBody List<Long> ids) {
+        return productService.getProducts(ids);
+    }
+
+    /**
+     * Prefix search over name and description, e.g. {@code ?q=wire key} matches "Wireless Keyboard".
+     */
+    @GetMapping("/search")
+    public List<ProductSearchHit> search(@RequestParam String q,
+                                         @RequestParam(defaultValue = "20") int limit,
+                                         @RequestParam(defaultValue = "false") boolean enrich) {
+        return searchService.search(q, limit, enrich);
+    }
+
     @GetMapping("/{id}/aggregation")
-    public ProductAggregation getAggregation(@PathVariable Long id) {
-        return productService.getProductAggregation(id);
+    public ProductAggregation getAggregation(
+            @PathVariable Long id,
+            @RequestHeader(name = REQUEST_CLASS_HEADER, required = false) String requestClass) {
+        return productService.getProductAggregation(id, RequestClass.parse(requestClass, singleAggregationClass));
+    }
+
+    /**
+     * Takes the raw body instead of a bound {@code List<Long>}. Ids are parsed as they arrive,
+     * and aggregation starts before the whole body has been read. A body that is not a JSON
+     * array of integers is a 400, as it was with message conversion.
+     */
+    @PostMapping(path = "/aggregations", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<ProductAggregation> getAggregations(
+            InputStream body,
+            @RequestHeader(name = REQUEST_CLASS_HEADER, required = false) String requestClass) throws IOException {
+        try (var ids = new JsonLongArrayReader(body)) {
+            return productService.getProductAggregations(ids, RequestClass.parse(requestClass, bulkAggregationClass));
+        } catch (JsonProcessingException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Expected a JSON array of product ids", e);
+        }
+    }
+
+    /**
+     * Products whose effective price (price minus discount) is within [min, max], highest
+     * discount first. Served from aggregations computed so far, without downstream calls.
+     */
+    @GetMapping("/aggregations/price-range")
+    public List<ProductAggregation> getByPriceRange(@RequestParam BigDecimal min,
+                                                    @RequestParam BigDecimal max,
+                                                    @RequestParam(defaultValue = "20") int limit) {
+        return rankIndex.priceRange(min, max, limit);
     }
 
-    @PostMapping("/aggregations")
-    public List<ProductAggregation> getAggregations(@RequestBody List<Long> ids) {
-        return productService.getProductAggregations(ids);
+    @GetMapping("/aggregations/top-rated")
+    public List<ProductAggregation> getTopRated(@RequestParam(defaultValue = "20") int limit) {
+        return rankIndex.topRated(limit);
     }
 }
\ No newline at end of file
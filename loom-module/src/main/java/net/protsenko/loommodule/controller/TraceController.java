@@ -0,0 +1,28 @@
+package net.protsenko.loommodule.controller;
+
+import lombok.RequiredArgsConstructor;
+import net.protsenko.common.trace.RequestTracer;
+import net.protsenko.common.trace.TraceRecord;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/traces")
+@RequiredArgsConstructor
+public class TraceController {
+
+    private final RequestTracer tracer;
+
+    /**
+     * Sampled requests slower than {@code tracing.slow-threshold}, newest first. Spans on the
+     * critical path are flagged.
+     */
+    @GetMapping("/slow")
+    public List<TraceRecord> getSlowTraces(@RequestParam(defaultValue = "50") int limit) {
+        return tracer.slowTraces(limit);
+    }
+}
@@ -0,0 +1,91 @@
+package net.protsenko.loommodule.repo;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import net.protsenko.common.model.Product;
+import net.protsenko.common.repo.ProductRepository;
+import net.protsenko.loommodule.entity.ProductEntity;
+import net.protsenko.loommodule.mapper.ProductMapper;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * {@link ProductRepository} over the single JPA datasource, used when {@code storage.shards} is 1.
+ */
+@RequiredArgsConstructor
+public class JpaBackedProductRepository implements ProductRepository {
+
+    private final JpaProductRepository repository;
+    private final ProductMapper mapper;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+
+    @Override
+    public Product save(Product product) {
+        return mapper.toDto(repository.save(mapper.toEntity(product)));
+    }
+
+    @Override
+    public List<Product> saveAll(List<Product> products) {
+        List<ProductEntity> entities = products.stream()
+                .map(mapper::toEntity)
+                .toList();
+        return repository.saveAll(entities).stream()
+                .map(mapper::toDto)
+                .toList();
+    }
+
+    @Override
+    public Optional<Product> findById(Long id) {
+        return repository.findById(id).map(mapper::toDto);
+    }
+
+    @Override
+    public List<Product> findAll() {
+        return repository.findAll().stream()
+                .map(mapper::toDto)
+                .toList();
+    }
+
+    @Override
+    public List<Product> findAllByIds(List<Long> ids) {
+        return repository.findAllByIdIn(ids).stream()
+                .map(mapper::toDto)
+                .toList();
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        repository.deleteById(id);
+    }
+
+    @Override
+    public void deleteAll() {
+        repository.deleteAll();
+    }
+
+    @Override
+    public long count() {
+        return repository.count();
+    }
+
+    /**
+     * Streams the table in one read-only transaction. Entities are detached as they go, so
+     * the persistence context stays small.
+     */
+    @Override
+    public void forEach(Consumer<Product> action) {
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<ProductEntity> entities = repository.streamAllBy()) {
+                entities.forEach(entity -> {
+                    action.accept(mapper.toDto(entity));
+                    entityManager.detach(entity);
+                });
+            }
+        });
+    }
+}
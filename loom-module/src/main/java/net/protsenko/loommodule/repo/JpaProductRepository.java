@@ -1,13 +1,26 @@
 package net.protsenko.loommodule.repo;
 
+import jakarta.persistence.QueryHint;
 import net.protsenko.loommodule.entity.ProductEntity;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface JpaProductRepository extends JpaRepository<ProductEntity, Long> {
 
     List<ProductEntity> findAllByIdIn(List<Long> ids);
+
+    /**
+     * Cursor over the whole table; must be consumed inside a transaction and closed.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500")
+    })
+    Stream<ProductEntity> streamAllBy();
 }
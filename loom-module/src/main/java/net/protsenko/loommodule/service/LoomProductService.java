@@ -2,18 +2,33 @@ package net.protsenko.loommodule.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import net.protsenko.common.accounting.ResourceAccount;
+import net.protsenko.common.admission.RequestClass;
+import net.protsenko.common.batching.GroupCommitter;
+import net.protsenko.common.hotkeys.HotAggregationCache;
+import net.protsenko.common.hotkeys.HotKeyTracker;
+import net.protsenko.common.json.JsonLongArrayReader;
 import net.protsenko.common.model.ExternalResponses;
 import net.protsenko.common.model.Product;
 import net.protsenko.common.model.ProductAggregation;
+import net.protsenko.common.ranking.AggregationRankIndex;
+import net.protsenko.common.repo.ProductRepository;
+import net.protsenko.common.scheduling.WeightedFairScheduler;
+import net.protsenko.common.search.ProductSearchIndex;
+import net.protsenko.common.snapshot.AggregationSnapshot;
 import net.protsenko.common.service.ProductService;
+import net.protsenko.common.trace.RequestTimeline;
+import net.protsenko.common.trace.RequestTimeline.Stage;
 import net.protsenko.loommodule.client.ExternalServiceClient;
-import net.protsenko.loommodule.mapper.ProductMapper;
-import net.protsenko.loommodule.repo.JpaProductRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.StructuredTaskScope;
 
 @Slf4j
@@ -21,43 +36,114 @@ import java.util.concurrent.StructuredTaskScope;
 @RequiredArgsConstructor
 public class LoomProductService implements ProductService {
 
-    private final JpaProductRepository repository;
-    private final ProductMapper mapper;
+    private final ProductRepository repository;
+    private final GroupCommitter<Product, Product> productWriter;
     private final ExternalServiceClient externalClient;
+    private final WeightedFairScheduler scheduler;
+    private final HotKeyTracker hotKeys;
+    private final HotAggregationCache hotCache;
+    private final ProductSearchIndex searchIndex;
+    private final AggregationRankIndex rankIndex;
+    private final AggregationSnapshot snapshot;
 
+    @Value("${scheduling.bulk-chunk-size:100}")
+    private int bulkChunkSize;
+
+    @Value("${scheduling.stream-window:512}")
+    private int streamWindow;
+
+    /**
+     * Writes through the group committer, which opens one transaction per batch. No transaction
+     * here: callers holding connections while they wait could starve the drainer of them.
+     */
     @Override
-    @Transactional
     public Product saveProduct(Product product) {
-        var entity = mapper.toEntity(product);
-        var saved = repository.save(entity);
-        return mapper.toDto(saved);
+        RequestTimeline timeline = RequestTimeline.current();
+        int db = timeline.begin(Stage.DB);
+        var saved = productWriter.submit(product);
+        timeline.end(db);
+        // submit returns once the batch has committed
+        searchIndex.index(saved);
+        return saved;
     }
 
     @Override
     @Transactional(readOnly = true)
     public Product getProduct(Long id) {
-        return repository.findById(id)
-                .map(mapper::toDto)
-                .orElseThrow(() -> new RuntimeException("Product not found: " + id));
+        RequestTimeline timeline = RequestTimeline.current();
+        int db = timeline.begin(Stage.DB);
+        var product = repository.findById(id);
+        timeline.end(db);
+        return product.orElseThrow(() -> new RuntimeException("Product not found: " + id));
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<Product> getAllProducts() {
-        return repository.findAll().stream()
-                .map(mapper::toDto)
-                .toList();
+        RequestTimeline timeline = RequestTimeline.current();
+        int db = timeline.begin(Stage.DB);
+        var products = repository.findAll();
+        timeline.end(db);
+        return products;
+    }
+
+    /**
+     * Batch lookup; with sharded storage the shards are read in parallel. Unknown ids are skipped.
+     */
+    @Transactional(readOnly = true)
+    public List<Product> getProducts(List<Long> ids) {
+        RequestTimeline timeline = RequestTimeline.current();
+        int db = timeline.begin(Stage.DB);
+        var products = repository.findAllByIds(ids);
+        timeline.end(db);
+        return products;
     }
 
 
     @Override
     public ProductAggregation getProductAggregation(Long productId) {
+        return getProductAggregation(productId, RequestClass.INTERACTIVE);
+    }
+
+    /**
+     * Serves hot products from the prefetched cache and recent ones from the restart snapshot;
+     * otherwise parks the virtual thread until the fair scheduler grants a downstream slot and
+     * aggregates.
+     */
+    public ProductAggregation getProductAggregation(Long productId, RequestClass requestClass) {
+        return getProductAggregation(productId, requestClass, RequestTimeline.current());
+    }
+
+    // Forked subtasks don't see the request thread's timeline, so it is passed explicitly.
+    // The resource account is bound by the countedCall wrapper instead.
+    private ProductAggregation getProductAggregation(Long productId, RequestClass requestClass,
+                                                     RequestTimeline timeline) {
+        hotKeys.record(productId);
+        ProductAggregation cached = cached(productId);
+        if (cached != null) {
+            return cached;
+        }
+        int slot = timeline.enqueue(Stage.SLOT);
+        acquireSlot(requestClass);
+        timeline.end(slot);
+        try {
+            return aggregate(productId, timeline);
+        } finally {
+            scheduler.release(requestClass);
+        }
+    }
+
+    private ProductAggregation aggregate(Long productId, RequestTimeline timeline) {
         log.debug("Aggregating data for product {} using StructuredTaskScope", productId);
 
+        ResourceAccount account = ResourceAccount.current();
         try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            var inventoryTask = scope.fork(() -> externalClient.getInventory(productId));
-            var pricingTask = scope.fork(() -> externalClient.getPricing(productId));
-            var reviewsTask = scope.fork(() -> externalClient.getReviews(productId));
+            var inventoryTask = scope.fork(account.countedCall(timeline.timedCall(timeline.enqueue(Stage.INVENTORY),
+                    () -> externalClient.getInventory(productId))));
+            var pricingTask = scope.fork(account.countedCall(timeline.timedCall(timeline.enqueue(Stage.PRICING),
+                    () -> externalClient.getPricing(productId))));
+            var reviewsTask = scope.fork(account.countedCall(timeline.timedCall(timeline.enqueue(Stage.REVIEWS),
+                    () -> externalClient.getReviews(productId))));
 
             scope.join();
             scope.throwIfFailed();
@@ -67,7 +153,7 @@ public class LoomProductService implements ProductService {
             ExternalResponses.PricingResponse pricing = pricingTask.get();
             ExternalResponses.ReviewsResponse reviews = reviewsTask.get();
 
-            return ProductAggregation.builder()
+            var aggregation = ProductAggregation.builder()
                     .productId(productId)
                     .stockCount(inventory.getStockCount())
                     .warehouseLocation(inventory.getWarehouseLocation())
@@ -76,6 +162,12 @@ public class LoomProductService implements ProductService {
                     .averageRating(reviews.getAverageRating())
                     .reviewCount(reviews.getReviewCount())
                     .build();
+            rankIndex.update(aggregation);
+            // A fallback was not computed now; stamped as fresh, a restart would serve it as current
+            if (!inventory.isFallback() && !pricing.isFallback() && !reviews.isFallback()) {
+                snapshot.record(aggregation);
+            }
+            return aggregation;
 
         } catch (InterruptedException | ExecutionException e) {
             Thread.currentThread().interrupt();
@@ -85,17 +177,78 @@ public class LoomProductService implements ProductService {
 
     @Override
     public List<ProductAggregation> getProductAggregations(List<Long> productIds) {
+        return getProductAggregations(productIds, RequestClass.BULK);
+    }
+
+    /**
+     * Processes the batch chunk by chunk, one StructuredTaskScope per chunk. Each forked virtual
+     * thread parks in the scheduler until it gets a slot, so a large batch never has more than
+     * one chunk of virtual threads alive.
+     */
+    public List<ProductAggregation> getProductAggregations(List<Long> productIds, RequestClass requestClass) {
+        RequestTimeline timeline = RequestTimeline.current();
+        ResourceAccount account = ResourceAccount.current();
+        List<ProductAggregation> results = new ArrayList<>(productIds.size());
+        for (int from = 0; from < productIds.size(); from += bulkChunkSize) {
+            List<Long> chunk = productIds.subList(from, Math.min(from + bulkChunkSize, productIds.size()));
+            try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+                var tasks = new ArrayList<StructuredTaskScope.Subtask<ProductAggregation>>(chunk.size());
+                for (Long id : chunk) {
+                    tasks.add(scope.fork(account.countedCall(() -> getProductAggregation(id, requestClass, timeline))));
+                }
+
+                scope.join();
+                scope.throwIfFailed();
+
+                tasks.forEach(task -> results.add(task.get()));
+
+            } catch (InterruptedException | ExecutionException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Failed to aggregate products", e);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Streaming variant. A single scope covers the whole request, and each id is forked as soon
+     * as it has been parsed. A per-request window of in-flight forks blocks the parsing thread
+     * when it is full, which stops reading from the socket. A 100k-id body therefore never has
+     * more than {@code stream-window} virtual threads alive.
+     */
+    public List<ProductAggregation> getProductAggregations(JsonLongArrayReader ids, RequestClass requestClass)
+            throws IOException {
+        RequestTimeline timeline = RequestTimeline.current();
+        ResourceAccount account = ResourceAccount.current();
+        Semaphore window = new Semaphore(streamWindow);
         try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            var tasks = productIds.stream()
-                    .map(id -> scope.fork(() -> getProductAggregation(id)))
-                    .toList();
+            var tasks = new ArrayList<StructuredTaskScope.Subtask<ProductAggregation>>();
+            long[] chunk = new long[bulkChunkSize];
+            parsing:
+            for (int count; (count = ids.read(chunk)) > 0; ) {
+                for (int i = 0; i < count; i++) {
+                    // Forks after a failure never run and would never return their permit
+                    if (scope.isShutdown()) {
+                        break parsing;
+                    }
+                    Long id = chunk[i];
+                    window.acquire();
+                    tasks.add(scope.fork(account.countedCall(() -> {
+                        try {
+                            return getProductAggregation(id, requestClass, timeline);
+                        } finally {
+                            window.release();
+                        }
+                    })));
+                }
+            }
 
             scope.join();
             scope.throwIfFailed();
 
-            return tasks.stream()
-                    .map(StructuredTaskScope.Subtask::get)
-                    .toList();
+            List<ProductAggregation> results = new ArrayList<>(tasks.size());
+            tasks.forEach(task -> results.add(task.get()));
+            return results;
 
         } catch (InterruptedException | ExecutionException e) {
             Thread.currentThread().interrupt();
@@ -103,6 +256,35 @@ public class LoomProductService implements ProductService {
         }
     }
 
+    /**
+     * Re-fetches a hot product into the cache. Runs as bulk so refreshes yield to live traffic.
+     */
+    public void refreshHotAggregation(Long productId) {
+        acquireSlot(RequestClass.BULK);
+        try {
+            hotCache.put(aggregate(productId, RequestTimeline.NOOP));
+        } finally {
+            scheduler.release(RequestClass.BULK);
+        }
+    }
+
+    /**
+     * A prefetched hot aggregation, or one restored from the startup snapshot while still fresh.
+     */
+    private ProductAggregation cached(Long productId) {
+        ProductAggregation hot = hotCache.getFresh(productId);
+        return hot != null ? hot : snapshot.getFresh(productId);
+    }
+
+    private void acquireSlot(RequestClass requestClass) {
+        try {
+            scheduler.acquire(requestClass);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a downstream slot", e);
+        }
+    }
+
     public ProductAggregation getProductAggregationSimple(Long productId) {
         log.debug("Aggregating data for product {} using simple virtual threads", productId);
 
@@ -0,0 +1,61 @@
+package net.protsenko.loommodule.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.protsenko.common.admission.RequestClass;
+import net.protsenko.common.model.Product;
+import net.protsenko.common.model.ProductAggregation;
+import net.protsenko.common.model.ProductSearchHit;
+import net.protsenko.common.repo.ProductRepository;
+import net.protsenko.common.search.ProductSearchIndex;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductSearchService {
+
+    private final ProductSearchIndex index;
+    private final ProductRepository repository;
+    private final LoomProductService productService;
+
+    /**
+     * Streams the products table, every shard of it when sharded, into the index before the
+     * application reports ready.
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void buildIndex() {
+        long start = System.nanoTime();
+        repository.forEach(index::index);
+        log.info("Search index built: {} products, {} terms in {} ms",
+                index.size(), index.termCount(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public List<ProductSearchHit> search(String query, int limit, boolean enrich) {
+        List<Long> ids = index.search(query, limit);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Product> products = repository.findAllByIds(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        Map<Long, ProductAggregation> aggregations = enrich
+                ? productService.getProductAggregations(ids, RequestClass.INTERACTIVE).stream()
+                        .collect(Collectors.toMap(ProductAggregation::getProductId, Function.identity(), (a, b) -> a))
+                : Map.of();
+
+        return ids.stream()
+                .filter(products::containsKey)
+                .map(id -> ProductSearchHit.builder()
+                        .product(products.get(id))
+                        .aggregation(aggregations.get(id))
+                        .build())
+                .toList();
+    }
+}
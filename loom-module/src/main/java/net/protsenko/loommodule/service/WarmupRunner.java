@@ -0,0 +1,101 @@
+package net.protsenko.loommodule.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.protsenko.common.hotkeys.HotKeyTracker;
+import net.protsenko.common.ranking.AggregationRankIndex;
+import net.protsenko.common.snapshot.AggregationSnapshot;
+import net.protsenko.common.warmup.DownstreamStub;
+import net.protsenko.common.warmup.WarmupDriver;
+import net.protsenko.common.warmup.WarmupMetrics;
+import net.protsenko.common.warmup.WarmupReport;
+import net.protsenko.loommodule.client.ExternalServiceClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Drives synthetic aggregation traffic through the application's own port, against a local
+ * downstream stub, until latency stops improving or the budget is spent. Runners complete
+ * before Spring Boot switches readiness to ACCEPTING_TRAFFIC, so the health endpoint reports
+ * the instance as out of service for as long as this runs.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class WarmupRunner implements ApplicationRunner {
+
+    private final ExternalServiceClient externalClient;
+    private final HotKeyTracker hotKeys;
+    private final AggregationRankIndex rankIndex;
+    private final AggregationSnapshot snapshot;
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${warmup.budget:20s}")
+    private Duration budget;
+
+    @Value("${warmup.round-size:500}")
+    private int roundSize;
+
+    @Value("${warmup.concurrency:8}")
+    private int concurrency;
+
+    @Value("${warmup.tolerance:0.1}")
+    private double tolerance;
+
+    @Value("${warmup.stable-rounds:3}")
+    private int stableRounds;
+
+    @Value("${warmup.batch-size:10}")
+    private int batchSize;
+
+    @Value("${warmup.synthetic-ids:10000}")
+    private int syntheticIds;
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException {
+        var driver = new WarmupDriver(budget, roundSize, concurrency, tolerance, stableRounds, batchSize, syntheticIds);
+        String baseUrl = "http://localhost:" + environment.getProperty("local.server.port");
+        WarmupReport report;
+        try (var stub = DownstreamStub.start()) {
+            externalClient.setWarmupTarget(stub.baseUrl());
+            report = driver.run(baseUrl);
+        } catch (IOException e) {
+            log.warn("Warm-up skipped: downstream stub did not start", e);
+            return;
+        } finally {
+            externalClient.setWarmupTarget(null);
+            forget(driver.syntheticIds());
+        }
+        log.info("Warm-up finished in {} ms after {} rounds ({} requests, {} errors, stabilized={}): "
+                        + "p50 {} -> {} ms, p99 {} -> {} ms",
+                report.duration().toMillis(), report.rounds(), report.requests(), report.errors(), report.stabilized(),
+                ms(report.coldP50Ms()), ms(report.warmP50Ms()), ms(report.coldP99Ms()), ms(report.warmP99Ms()));
+        WarmupMetrics.bind(report, meterRegistry);
+    }
+
+    /**
+     * Synthetic aggregations must not show up in rankings, hot-key prefetching, snapshots or
+     * last-known fallbacks.
+     */
+    private void forget(List<Long> ids) {
+        ids.forEach(rankIndex::remove);
+        hotKeys.forget(ids);
+        snapshot.forget(ids);
+        externalClient.forget(ids);
+    }
+
+    private static double ms(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,57 @@
+package net.protsenko.loommodule.web;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import net.protsenko.common.admission.AdmissionController;
+import net.protsenko.common.admission.AdmissionMetrics;
+import net.protsenko.common.admission.RequestClass;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Sheds load with a fast 503 + Retry-After before the request reaches the controllers,
+ * so overload shows up as rejections instead of an unbounded number of virtual threads.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "admission.enabled", havingValue = "true")
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private final AdmissionController admissionController;
+
+    public AdmissionControlFilter(
+            @Value("${admission.max-in-flight:1000}") int maxInFlight,
+            @Value("${admission.bulk-max-in-flight:16}") int maxBulkInFlight,
+            @Value("${admission.retry-after-seconds:1}") int retryAfterSeconds,
+            MeterRegistry meterRegistry) {
+        this.admissionController = new AdmissionController(maxInFlight, maxBulkInFlight, retryAfterSeconds);
+        AdmissionMetrics.bind(admissionController, meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        RequestClass requestClass = RequestClass.classify(request.getMethod(), request.getRequestURI());
+        if (!admissionController.tryAdmit(requestClass)) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Integer.toString(admissionController.getRetryAfterSeconds()));
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            admissionController.release(requestClass);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package net.protsenko.loommodule.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import net.protsenko.common.trace.RequestTimeline;
+import net.protsenko.common.trace.RequestTracer;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Binds a timeline to the request thread when the request is sampled, and hands it to the
+ * tracer once the response is done. Unsampled requests pass straight through.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@RequiredArgsConstructor
+public class RequestTimingFilter extends OncePerRequestFilter {
+
+    private final RequestTracer tracer;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        RequestTimeline timeline = tracer.begin();
+        if (!timeline.isSampled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        RequestTimeline.bind(timeline);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestTimeline.unbind();
+            tracer.finish(timeline, request.getMethod(), request.getRequestURI(), response.getStatus());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package net.protsenko.loommodule.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import net.protsenko.common.accounting.RequestResourceMeter;
+import net.protsenko.common.accounting.ResourceAccount;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Measures allocation and CPU time of the request thread while a sampled request runs, and
+ * records the total per route once the response is done. Forked subtasks wrapped with
+ * {@code ResourceAccount.countedCall} add their threads' share. Virtual threads expose no
+ * counters, so in this module most work shows up as unmeasured.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+@RequiredArgsConstructor
+public class ResourceAccountingFilter extends OncePerRequestFilter {
+
+    private final RequestResourceMeter meter;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        ResourceAccount account = meter.begin();
+        if (!account.isSampled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        ResourceAccount.bind(account);
+        try (ResourceAccount.Segment ignored = account.start()) {
+            filterChain.doFilter(request, response);
+        } finally {
+            ResourceAccount.unbind();
+            Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            meter.record(account, request.getMethod(), route != null ? route.toString() : "unmatched");
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package net.protsenko.loommodule.web;
+
+import lombok.RequiredArgsConstructor;
+import net.protsenko.common.trace.RequestTimeline;
+import net.protsenko.common.trace.RequestTracer;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Adds the Server-Timing header just before the body is written. A filter would run too
+ * late, because the response is already committed by then.
+ */
+@ControllerAdvice
+@RequiredArgsConstructor
+public class ServerTimingAdvice implements ResponseBodyAdvice<Object> {
+
+    private static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    private final RequestTracer tracer;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        RequestTimeline timeline = RequestTimeline.current();
+        if (timeline.isSampled()) {
+            response.getHeaders().add(SERVER_TIMING_HEADER, tracer.serverTiming(timeline));
+        }
+        return body;
+    }
+}
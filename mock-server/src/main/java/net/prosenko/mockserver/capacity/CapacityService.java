@@ -0,0 +1,48 @@
+package net.prosenko.mockserver.capacity;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-endpoint capacity models. Endpoints without a model answer after an independent delay.
+ */
+@Slf4j
+@Service
+public class CapacityService {
+
+    private final Map<String, SimulatedServer> servers = new ConcurrentHashMap<>();
+
+    public void configure(String endpoint, int workers, int queueCapacity) {
+        if (workers <= 0) {
+            servers.remove(endpoint);
+            log.info("Capacity model for {} disabled", endpoint);
+        } else {
+            servers.put(endpoint, new SimulatedServer(workers, Math.max(queueCapacity, 0)));
+            log.info("Capacity model for {}: {} workers, queue {}", endpoint, workers, queueCapacity);
+        }
+    }
+
+    /**
+     * Delays {@code response} by its service time, queueing behind other requests when the
+     * endpoint has a capacity model.
+     */
+    public <T> Mono<T> serve(String endpoint, T response, int serviceTimeMs) {
+        SimulatedServer server = servers.get(endpoint);
+        if (server == null) {
+            return Mono.just(response).delayElement(Duration.ofMillis(serviceTimeMs));
+        }
+        return server.serve(serviceTimeMs).thenReturn(response);
+    }
+
+    public Map<String, SimulatedServer.Stats> stats() {
+        Map<String, SimulatedServer.Stats> stats = new TreeMap<>();
+        servers.forEach((endpoint, server) -> stats.put(endpoint, server.stats()));
+        return stats;
+    }
+}
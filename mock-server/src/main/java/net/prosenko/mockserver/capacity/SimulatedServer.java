@@ -0,0 +1,99 @@
+package net.prosenko.mockserver.capacity;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A downstream with a fixed number of workers and a bounded FIFO queue.
+ * A request holds a worker for its service time; while all workers are busy it waits in the
+ * queue, and when the queue is full it is rejected with 503. Latency therefore grows with
+ * offered load instead of staying flat.
+ */
+public class SimulatedServer {
+
+    private final int workers;
+    private final int queueCapacity;
+    private final Scheduler timer = Schedulers.parallel();
+
+    private final Deque<Waiter> queue = new ArrayDeque<>();
+    private int busy;
+    private long served;
+    private long rejected;
+
+    private record Waiter(MonoSink<Void> sink, long serviceTimeMs) {
+    }
+
+    public record Stats(int workers, int queueCapacity, int busy, int queued, long served, long rejected) {
+    }
+
+    public SimulatedServer(int workers, int queueCapacity) {
+        this.workers = workers;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Completes once the request has waited for a worker and been served for {@code serviceTimeMs}.
+     */
+    public Mono<Void> serve(long serviceTimeMs) {
+        return Mono.create(sink -> {
+            Waiter waiter = new Waiter(sink, serviceTimeMs);
+            boolean start;
+            synchronized (this) {
+                if (busy < workers) {
+                    busy++;
+                    start = true;
+                } else if (queue.size() < queueCapacity) {
+                    queue.addLast(waiter);
+                    start = false;
+                } else {
+                    rejected++;
+                    sink.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                            "Simulated server saturated"));
+                    return;
+                }
+            }
+            if (start) {
+                startService(waiter);
+            } else {
+                sink.onCancel(() -> {
+                    synchronized (this) {
+                        queue.remove(waiter);
+                    }
+                });
+            }
+        });
+    }
+
+    private void startService(Waiter waiter) {
+        timer.schedule(() -> {
+            waiter.sink().success();
+            release();
+        }, waiter.serviceTimeMs(), TimeUnit.MILLISECONDS);
+    }
+
+    private void release() {
+        Waiter next;
+        synchronized (this) {
+            served++;
+            next = queue.pollFirst();
+            if (next == null) {
+                busy--;
+                return;
+            }
+        }
+        // The freed worker goes straight to the head of the queue
+        startService(next);
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(workers, queueCapacity, busy, queue.size(), served, rejected);
+    }
+}
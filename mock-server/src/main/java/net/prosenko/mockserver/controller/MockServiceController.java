@@ -1,18 +1,33 @@
 package net.prosenko.mockserver.controller;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import net.prosenko.mockserver.capacity.CapacityService;
+import net.prosenko.mockserver.capacity.SimulatedServer;
+import net.prosenko.mockserver.trace.TraceEndpoint;
+import net.prosenko.mockserver.trace.TraceMode;
+import net.prosenko.mockserver.trace.TraceReplayer;
+import net.prosenko.mockserver.trace.TraceService;
+import net.protsenko.common.mock.MockResponses;
 import net.protsenko.common.model.ExternalResponses;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Mono;
 
+import java.io.IOException;
 import java.math.BigDecimal;
-import java.time.Duration;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 @RestController
 @RequestMapping("/api")
+@RequiredArgsConstructor
 public class MockServiceController {
 
     @Value("${mock.latency.min:50}")
@@ -21,38 +36,69 @@ public class MockServiceController {
     @Value("${mock.latency.max:150}")
     private int maxLatencyMs;
 
+    private final TraceService traceService;
+    private final CapacityService capacityService;
+
     private final Random random = new Random();
 
+    // Endpoint name -> probability of answering with 503
+    private final Map<String, Double> failureRates = new ConcurrentHashMap<>();
+
     @GetMapping("/inventory/{productId}")
     public Mono<ExternalResponses.InventoryResponse> getInventory(@PathVariable Long productId) {
-        return Mono.just(ExternalResponses.InventoryResponse.builder()
-                        .productId(productId)
-                        .stockCount(random.nextInt(1000))
-                        .warehouseLocation("Warehouse-" + (char)('A' + random.nextInt(5)))
-                        .build())
-                .delayElement(randomDelay());
+        ExternalResponses.InventoryResponse response;
+        int delay;
+        TraceReplayer replayer = traceService.replayer();
+        int record = replayer != null ? replayer.next(TraceEndpoint.INVENTORY, productId) : -1;
+        if (record >= 0) {
+            response = MockResponses.inventory(productId, replayer.a(record), replayer.b(record));
+            delay = replayer.delayMs(record);
+        } else {
+            response = MockResponses.randomInventory(productId, random);
+            delay = randomDelayMs();
+            traceService.record(TraceEndpoint.INVENTORY, productId, delay,
+                    response.getStockCount(), MockResponses.warehouse(response));
+        }
+        return respond("inventory", response, delay);
     }
 
     @GetMapping("/pricing/{productId}")
     public Mono<ExternalResponses.PricingResponse> getPricing(@PathVariable Long productId) {
-        return Mono.just(ExternalResponses.PricingResponse.builder()
-                        .productId(productId)
-                        .currentPrice(BigDecimal.valueOf(10 + random.nextDouble() * 990)
-                                .setScale(2, BigDecimal.ROUND_HALF_UP))
-                        .discountPercent(BigDecimal.valueOf(random.nextDouble() * 30)
-                                .setScale(1, BigDecimal.ROUND_HALF_UP))
-                        .build())
-                .delayElement(randomDelay());
+        ExternalResponses.PricingResponse response;
+        int delay;
+        TraceReplayer replayer = traceService.replayer();
+        int record = replayer != null ? replayer.next(TraceEndpoint.PRICING, productId) : -1;
+        if (record >= 0) {
+            response = MockResponses.pricing(productId,
+                    BigDecimal.valueOf(replayer.a(record), 2), BigDecimal.valueOf(replayer.b(record), 1));
+            delay = replayer.delayMs(record);
+        } else {
+            response = MockResponses.randomPricing(productId, random);
+            delay = randomDelayMs();
+            traceService.record(TraceEndpoint.PRICING, productId, delay,
+                    response.getCurrentPrice().unscaledValue().longValueExact(),
+                    response.getDiscountPercent().unscaledValue().longValueExact());
+        }
+        return respond("pricing", response, delay);
     }
 
     @GetMapping("/reviews/{productId}")
     public Mono<ExternalResponses.ReviewsResponse> getReviews(@PathVariable Long productId) {
-        return Mono.just(ExternalResponses.ReviewsResponse.builder()
-                        .productId(productId)
-                        .averageRating(1 + random.nextDouble() * 4)
-                        .reviewCount(random.nextInt(5000))
-                        .build())
-                .delayElement(randomDelay());
+        ExternalResponses.ReviewsResponse response;
+        int delay;
+        TraceReplayer replayer = traceService.replayer();
+        int record = replayer != null ? replayer.next(TraceEndpoint.REVIEWS, productId) : -1;
+        if (record >= 0) {
+            response = MockResponses.reviews(productId,
+                    Double.longBitsToDouble(replayer.a(record)), replayer.b(record));
+            delay = replayer.delayMs(record);
+        } else {
+            response = MockResponses.randomReviews(productId, random);
+            delay = randomDelayMs();
+            traceService.record(TraceEndpoint.REVIEWS, productId, delay,
+                    Double.doubleToRawLongBits(response.getAverageRating()), response.getReviewCount());
+        }
+        return respond("reviews", response, delay);
     }
 
     @GetMapping("/health")
@@ -68,8 +114,83 @@ public class MockServiceController {
         return Mono.just("Latency set to " + min + "ms - " + max + "ms");
     }
 
-    private Duration randomDelay() {
-        int delay = minLatencyMs + random.nextInt(maxLatencyMs - minLatencyMs + 1);
-        return Duration.ofMillis(delay);
+    /**
+     * Makes an endpoint (inventory, pricing, reviews) answer 503 with the given probability,
+     * e.g. rate=1.0 to trip the aggregators' circuit breakers. rate=0 restores normal behavior.
+     */
+    @PostMapping("/config/failure")
+    public Mono<String> setFailureRate(@RequestParam String endpoint, @RequestParam double rate) {
+        if (rate <= 0) {
+            failureRates.remove(endpoint);
+        } else {
+            failureRates.put(endpoint, Math.min(rate, 1.0));
+        }
+        log.info("Failure rate for {} configured: {}", endpoint, rate);
+        return Mono.just("Failure rate for " + endpoint + " set to " + rate);
+    }
+
+    @GetMapping("/config/failure")
+    public Mono<Map<String, Double>> getFailureRates() {
+        return Mono.just(Map.copyOf(failureRates));
+    }
+
+    /**
+     * Switches between live, record and replay, e.g. mode=record&file=run1.bin, then
+     * mode=replay&file=run1.bin to serve byte-identical responses and delays.
+     */
+    @PostMapping("/config/trace")
+    public Mono<String> setTraceMode(@RequestParam String mode,
+                                     @RequestParam(required = false) String file) throws IOException {
+        TraceMode traceMode;
+        try {
+            traceMode = TraceMode.valueOf(mode.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown trace mode: " + mode, e);
+        }
+        Path path = file != null ? Path.of(file) : traceService.getFile();
+        traceService.switchMode(traceMode, path);
+        return Mono.just("Trace mode set to " + traceMode + " (" + path + ")");
+    }
+
+    @GetMapping("/config/trace")
+    public Mono<String> getTraceMode() {
+        return Mono.just(traceService.getMode() + " (" + traceService.getFile() + ")");
+    }
+
+    /**
+     * Models an endpoint as a server with {@code workers} parallel workers and a bounded queue:
+     * the random delay becomes service time, waiting for a worker adds queueing delay and
+     * requests beyond the queue are rejected with 503. workers=0 restores independent delays.
+     */
+    @PostMapping("/config/capacity")
+    public Mono<String> setCapacity(@RequestParam String endpoint, @RequestParam int workers,
+                                    @RequestParam(defaultValue = "0") int queue) {
+        capacityService.configure(endpoint, workers, queue);
+        return Mono.just(workers > 0
+                ? "Capacity for " + endpoint + " set to " + workers + " workers, queue " + queue
+                : "Capacity model for " + endpoint + " disabled");
+    }
+
+    @GetMapping("/config/capacity")
+    public Mono<Map<String, SimulatedServer.Stats>> getCapacity() {
+        return Mono.just(capacityService.stats());
+    }
+
+    private <T> Mono<T> respond(String endpoint, T response, int delayMs) {
+        return capacityService.serve(endpoint, response, delayMs)
+                .flatMap(served -> maybeFail(endpoint, served));
+    }
+
+    private <T> Mono<T> maybeFail(String endpoint, T response) {
+        double rate = failureRates.getOrDefault(endpoint, 0.0);
+        if (rate > 0 && random.nextDouble() < rate) {
+            return Mono.error(new ResponseStatusException(
+                    HttpStatus.SERVICE_UNAVAILABLE, endpoint + " is failing (injected)"));
+        }
+        return Mono.just(response);
+    }
+
+    private int randomDelayMs() {
+        return MockResponses.randomDelayMs(minLatencyMs, maxLatencyMs, random);
     }
 }
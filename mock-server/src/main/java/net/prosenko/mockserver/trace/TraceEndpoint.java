@@ -0,0 +1,7 @@
+package net.prosenko.mockserver.trace;
+
+public enum TraceEndpoint {
+    INVENTORY,
+    PRICING,
+    REVIEWS
+}
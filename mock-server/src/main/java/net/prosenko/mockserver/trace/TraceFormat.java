@@ -0,0 +1,29 @@
+package net.prosenko.mockserver.trace;
+
+/**
+ * Binary trace layout: a 16 byte header followed by fixed 32 byte records in arrival order.
+ * <pre>
+ * header: int magic, int version, long reserved
+ * record: byte endpoint, 3 bytes padding, int delayMs, long productId, long a, long b
+ * </pre>
+ * The meaning of {@code a} and {@code b} depends on the endpoint:
+ * inventory = stockCount, warehouse letter index;
+ * pricing = currentPrice unscaled (scale 2), discountPercent unscaled (scale 1);
+ * reviews = averageRating raw double bits, reviewCount.
+ */
+final class TraceFormat {
+
+    static final int MAGIC = 0x4D545243; // "MTRC"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 32;
+
+    static final int ENDPOINT_OFFSET = 0;
+    static final int DELAY_OFFSET = 4;
+    static final int PRODUCT_ID_OFFSET = 8;
+    static final int A_OFFSET = 16;
+    static final int B_OFFSET = 24;
+
+    private TraceFormat() {
+    }
+}
@@ -0,0 +1,16 @@
+package net.prosenko.mockserver.trace;
+
+public enum TraceMode {
+    /**
+     * Random data and delays, nothing captured.
+     */
+    LIVE,
+    /**
+     * Random data and delays, every response captured to the trace file.
+     */
+    RECORD,
+    /**
+     * Responses and delays served from the trace file; unknown keys fall back to live data.
+     */
+    REPLAY
+}
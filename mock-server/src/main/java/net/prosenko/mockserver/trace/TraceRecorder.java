@@ -0,0 +1,75 @@
+package net.prosenko.mockserver.trace;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends responses to a trace file through a direct buffer. Thread-safe.
+ */
+public class TraceRecorder implements AutoCloseable {
+
+    private static final int BUFFER_RECORDS = 2048;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(TraceFormat.RECORD_SIZE * BUFFER_RECORDS);
+    private long recordCount;
+    private boolean closed;
+
+    public TraceRecorder(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(TraceFormat.HEADER_SIZE)
+                .putInt(TraceFormat.MAGIC)
+                .putInt(TraceFormat.VERSION)
+                .putLong(0)
+                .flip();
+        channel.write(header);
+    }
+
+    public synchronized void record(TraceEndpoint endpoint, long productId, int delayMs, long a, long b) {
+        if (closed) {
+            return;
+        }
+        if (buffer.remaining() < TraceFormat.RECORD_SIZE) {
+            flush();
+        }
+        buffer.put((byte) endpoint.ordinal())
+                .put((byte) 0).put((byte) 0).put((byte) 0)
+                .putInt(delayMs)
+                .putLong(productId)
+                .putLong(a)
+                .putLong(b);
+        recordCount++;
+    }
+
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    private void flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write trace", e);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flush();
+        channel.force(false);
+        channel.close();
+    }
+}
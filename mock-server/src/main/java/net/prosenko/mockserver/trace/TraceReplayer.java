@@ -0,0 +1,146 @@
+package net.prosenko.mockserver.trace;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Serves a recorded trace from a memory-mapped file. Every (endpoint, productId) key replays
+ * its responses in recorded order and wraps around when exhausted. The index is built once
+ * at open time; lookups only touch primitive arrays and the mapping.
+ */
+public class TraceReplayer {
+
+    private final MappedByteBuffer trace;
+    private final int recordCount;
+
+    // Sorted unique keys and the slice of recordOrder holding their records
+    private final byte[] keyEndpoints;
+    private final long[] keyProductIds;
+    private final int[] keyStart;
+    private final int[] keyCount;
+    private final AtomicIntegerArray keyCursor;
+    private final int[] recordOrder;
+
+    public TraceReplayer(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Trace larger than 2 GiB is not supported: " + file);
+            }
+            this.trace = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        if (trace.capacity() < TraceFormat.HEADER_SIZE || trace.getInt(0) != TraceFormat.MAGIC) {
+            throw new IOException("Not a mock trace file: " + file);
+        }
+        if (trace.getInt(4) != TraceFormat.VERSION) {
+            throw new IOException("Unsupported trace version " + trace.getInt(4) + " in " + file);
+        }
+        this.recordCount = (trace.capacity() - TraceFormat.HEADER_SIZE) / TraceFormat.RECORD_SIZE;
+
+        // Stable sort keeps the recorded order within each key
+        this.recordOrder = IntStream.range(0, recordCount)
+                .boxed()
+                .sorted((x, y) -> compareKey(endpointCode(x), productId(x), endpointCode(y), productId(y)))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        int keys = 0;
+        for (int i = 0; i < recordCount; i++) {
+            if (i == 0 || !sameKey(recordOrder[i - 1], recordOrder[i])) {
+                keys++;
+            }
+        }
+        this.keyEndpoints = new byte[keys];
+        this.keyProductIds = new long[keys];
+        this.keyStart = new int[keys];
+        this.keyCount = new int[keys];
+        this.keyCursor = new AtomicIntegerArray(keys);
+
+        int key = -1;
+        for (int i = 0; i < recordCount; i++) {
+            int record = recordOrder[i];
+            if (i == 0 || !sameKey(recordOrder[i - 1], record)) {
+                key++;
+                keyEndpoints[key] = (byte) endpointCode(record);
+                keyProductIds[key] = productId(record);
+                keyStart[key] = i;
+            }
+            keyCount[key]++;
+        }
+    }
+
+    /**
+     * @return the next record number for the key, or -1 if the trace never saw it
+     */
+    public int next(TraceEndpoint endpoint, long productId) {
+        int key = findKey(endpoint.ordinal(), productId);
+        if (key < 0) {
+            return -1;
+        }
+        int position = Math.floorMod(keyCursor.getAndIncrement(key), keyCount[key]);
+        return recordOrder[keyStart[key] + position];
+    }
+
+    public int delayMs(int record) {
+        return trace.getInt(offset(record) + TraceFormat.DELAY_OFFSET);
+    }
+
+    public long a(int record) {
+        return trace.getLong(offset(record) + TraceFormat.A_OFFSET);
+    }
+
+    public long b(int record) {
+        return trace.getLong(offset(record) + TraceFormat.B_OFFSET);
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    public int getKeyCount() {
+        return keyProductIds.length;
+    }
+
+    private int findKey(int endpoint, long productId) {
+        int low = 0;
+        int high = keyProductIds.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareKey(keyEndpoints[mid], keyProductIds[mid], endpoint, productId);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private boolean sameKey(int x, int y) {
+        return endpointCode(x) == endpointCode(y) && productId(x) == productId(y);
+    }
+
+    private int endpointCode(int record) {
+        return trace.get(offset(record) + TraceFormat.ENDPOINT_OFFSET);
+    }
+
+    private long productId(int record) {
+        return trace.getLong(offset(record) + TraceFormat.PRODUCT_ID_OFFSET);
+    }
+
+    private static int offset(int record) {
+        return TraceFormat.HEADER_SIZE + record * TraceFormat.RECORD_SIZE;
+    }
+
+    private static int compareKey(int endpointX, long productX, int endpointY, long productY) {
+        int cmp = Integer.compare(endpointX, endpointY);
+        return cmp != 0 ? cmp : Long.compare(productX, productY);
+    }
+}
@@ -0,0 +1,107 @@
+package net.prosenko.mockserver.trace;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Owns the current trace mode and the recorder or replayer that goes with it.
+ */
+@Slf4j
+@Service
+public class TraceService {
+
+    @Value("${mock.trace.mode:live}")
+    private TraceMode initialMode;
+
+    @Value("${mock.trace.file:mock-trace.bin}")
+    private String initialFile;
+
+    private volatile TraceRecorder recorder;
+    private volatile TraceReplayer replayer;
+    private volatile TraceMode mode = TraceMode.LIVE;
+    private volatile Path file;
+
+    @PostConstruct
+    public void init() throws IOException {
+        switchMode(initialMode, Path.of(initialFile));
+    }
+
+    /**
+     * Opens the new recorder or replayer before anything is swapped, so a missing or corrupt
+     * file leaves the current mode in place. The only exception is the file being recorded:
+     * it has to be finished before it can be replayed or recorded over, so that recording
+     * stops first and a failure then leaves the service live.
+     */
+    public synchronized void switchMode(TraceMode newMode, Path newFile) throws IOException {
+        if (recorder != null && newMode != TraceMode.LIVE && sameFile(newFile)) {
+            closeRecorder();
+            mode = TraceMode.LIVE;
+        }
+
+        TraceRecorder newRecorder = null;
+        TraceReplayer newReplayer = null;
+        switch (newMode) {
+            case RECORD -> newRecorder = new TraceRecorder(newFile);
+            case REPLAY -> {
+                newReplayer = new TraceReplayer(newFile);
+                log.info("Replaying {} records for {} keys from {}",
+                        newReplayer.getRecordCount(), newReplayer.getKeyCount(), newFile);
+            }
+            case LIVE -> {
+            }
+        }
+
+        TraceRecorder previous = recorder;
+        Path previousFile = file;
+        recorder = newRecorder;
+        replayer = newReplayer;
+        mode = newMode;
+        file = newFile;
+        log.info("Trace mode: {} ({})", newMode, newFile);
+        if (previous != null) {
+            log.info("Trace recorded: {} records to {}", previous.getRecordCount(), previousFile);
+            previous.close();
+        }
+    }
+
+    /**
+     * @return the replayer when replaying, otherwise null
+     */
+    public TraceReplayer replayer() {
+        return replayer;
+    }
+
+    public void record(TraceEndpoint endpoint, long productId, int delayMs, long a, long b) {
+        TraceRecorder current = recorder;
+        if (current != null) {
+            current.record(endpoint, productId, delayMs, a, b);
+        }
+    }
+
+    public TraceMode getMode() {
+        return mode;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    private boolean sameFile(Path other) {
+        return file != null && file.toAbsolutePath().normalize().equals(other.toAbsolutePath().normalize());
+    }
+
+    @PreDestroy
+    public synchronized void closeRecorder() throws IOException {
+        if (recorder != null) {
+            log.info("Trace recorded: {} records to {}", recorder.getRecordCount(), file);
+            recorder.close();
+            recorder = null;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+#!/usr/bin/env sh
+# Starts N mock-server instances on consecutive ports and prints the matching
+# external.service.base-urls value for the product modules.
+#
+#   scripts/start-mock-servers.sh 3          # ports 8090, 8091, 8092
+#   scripts/start-mock-servers.sh 4 9000     # ports 9000..9003
+#   scripts/start-mock-servers.sh stop
+#
+# Extra mock-server arguments can be passed through MOCK_ARGS, e.g.
+#   MOCK_ARGS="--mock.trace.mode=replay" scripts/start-mock-servers.sh 2
+set -eu
+
+cd "$(dirname "$0")/.."
+RUN_DIR=build/mock-servers
+PID_FILE="$RUN_DIR/pids"
+
+if [ "${1:-}" = "stop" ]; then
+    if [ -f "$PID_FILE" ]; then
+        while read -r pid; do
+            kill "$pid" 2>/dev/null || true
+        done < "$PID_FILE"
+        rm -f "$PID_FILE"
+        echo "Stopped mock servers"
+    fi
+    exit 0
+fi
+
+COUNT=${1:-2}
+FIRST_PORT=${2:-8090}
+
+sh ./gradlew -q :mock-server:bootJar
+JAR=$(ls mock-server/build/libs/*.jar | grep -v -- '-plain' | head -n 1)
+
+mkdir -p "$RUN_DIR"
+URLS=""
+i=0
+while [ "$i" -lt "$COUNT" ]; do
+    port=$((FIRST_PORT + i))
+    java -jar "$JAR" --server.port="$port" ${MOCK_ARGS:-} > "$RUN_DIR/mock-$port.log" 2>&1 &
+    echo $! >> "$PID_FILE"
+    URLS="${URLS:+$URLS,}http://localhost:$port"
+    i=$((i + 1))
+done
+
+for url in $(echo "$URLS" | tr ',' ' '); do
+    until curl -sf "$url/api/health" > /dev/null; do
+        sleep 0.5
+    done
+done
+
+echo "Started $COUNT mock servers (logs in $RUN_DIR). Run the modules with:"
+echo "  --external.service.base-urls=$URLS"
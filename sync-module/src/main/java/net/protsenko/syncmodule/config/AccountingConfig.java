@@ -0,0 +1,19 @@
+package net.protsenko.syncmodule.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.protsenko.common.accounting.RequestResourceMeter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class AccountingConfig {
+
+    @Bean
+    public RequestResourceMeter requestResourceMeter(
+            @Value("${accounting.sample-rate:0.1}") double sampleRate,
+            @Value("${spring.application.name}") String module,
+            MeterRegistry meterRegistry) {
+        return new RequestResourceMeter(sampleRate, module, meterRegistry);
+    }
+}
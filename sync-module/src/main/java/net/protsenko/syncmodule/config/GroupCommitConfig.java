@@ -0,0 +1,44 @@
+package net.protsenko.syncmodule.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.protsenko.common.batching.GroupCommitMetrics;
+import net.protsenko.common.batching.GroupCommitter;
+import net.protsenko.common.model.Product;
+import net.protsenko.common.repo.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+@Configuration
+public class GroupCommitConfig {
+
+    /**
+     * With {@code group-commit.enabled}, concurrent saves are handed to a drainer on a platform
+     * daemon thread and written in batches, one transaction per batch, or one per shard the
+     * batch touches with sharded storage. Otherwise every save is written inline in its own
+     * transaction.
+     */
+    @Bean(destroyMethod = "close")
+    public GroupCommitter<Product, Product> productWriter(
+            @Value("${group-commit.enabled:false}") boolean enabled,
+            @Value("${group-commit.max-batch-size:64}") int maxBatchSize,
+            @Value("${group-commit.max-linger:2ms}") Duration maxLinger,
+            @Value("${group-commit.queue-capacity:4096}") int queueCapacity,
+            ProductRepository repository,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry) {
+        Function<List<Product>, List<Product>> write =
+                batch -> transactionTemplate.execute(status -> repository.saveAll(batch));
+        GroupCommitter<Product, Product> writer = enabled
+                ? GroupCommitter.batching("products", write, maxBatchSize, maxLinger, queueCapacity,
+                        Thread.ofPlatform().name("products-group-commit").daemon(true).factory())
+                : GroupCommitter.inline("products", write);
+        GroupCommitMetrics.bind(writer, meterRegistry);
+        return writer;
+    }
+}
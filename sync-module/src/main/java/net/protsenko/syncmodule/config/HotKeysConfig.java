@@ -0,0 +1,43 @@
+package net.protsenko.syncmodule.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.protsenko.common.hotkeys.HotAggregationCache;
+import net.protsenko.common.hotkeys.HotKeyMetrics;
+import net.protsenko.common.hotkeys.HotKeyTracker;
+import net.protsenko.common.hotkeys.RefreshPlanner;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class HotKeysConfig {
+
+    @Bean
+    public HotKeyTracker hotKeyTracker(
+            @Value("${hot-keys.enabled:false}") boolean enabled,
+            @Value("${hot-keys.top-k:100}") int topK,
+            @Value("${hot-keys.expected-keys:100000}") int expectedKeys) {
+        return new HotKeyTracker(enabled, topK, expectedKeys);
+    }
+
+    @Bean
+    public HotAggregationCache hotAggregationCache(@Value("${hot-keys.ttl:5s}") Duration ttl) {
+        return new HotAggregationCache(ttl);
+    }
+
+    @Bean
+    public RefreshPlanner hotKeyRefreshPlanner(
+            HotKeyTracker tracker,
+            HotAggregationCache cache,
+            @Value("${hot-keys.refresh-after:3s}") Duration refreshAfter,
+            @Value("${hot-keys.refresh-interval:500ms}") Duration refreshInterval,
+            @Value("${hot-keys.downstream-calls-per-second:300}") int callsPerSecond,
+            MeterRegistry meterRegistry) {
+        int callsPerRound = (int) (callsPerSecond * refreshInterval.toMillis() / 1000);
+        var planner = new RefreshPlanner(tracker, cache, refreshAfter, callsPerRound);
+        HotKeyMetrics.bind(tracker, cache, planner, meterRegistry);
+        return planner;
+    }
+}
@@ -0,0 +1,25 @@
+package net.protsenko.syncmodule.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.protsenko.common.ranking.AggregationRankIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RankingConfig {
+
+    @Bean
+    public AggregationRankIndex aggregationRankIndex(
+            @Value("${ranking.max-entries:100000}") int maxEntries,
+            MeterRegistry meterRegistry) {
+        var index = new AggregationRankIndex(maxEntries);
+        Gauge.builder("ranking.products", index, AggregationRankIndex::size)
+                .register(meterRegistry);
+        FunctionCounter.builder("ranking.evictions", index, AggregationRankIndex::getEvictedCount)
+                .register(meterRegistry);
+        return index;
+    }
+}
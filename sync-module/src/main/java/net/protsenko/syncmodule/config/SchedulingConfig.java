@@ -0,0 +1,31 @@
+package net.protsenko.syncmodule.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.protsenko.common.admission.RequestClass;
+import net.protsenko.common.scheduling.SchedulerMetrics;
+import net.protsenko.common.scheduling.WeightedFairScheduler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+@Configuration
+public class SchedulingConfig {
+
+    @Bean
+    public WeightedFairScheduler downstreamScheduler(
+            @Value("${scheduling.capacity:256}") int capacity,
+            @Value("${scheduling.reserved-interactive:32}") int reservedInteractive,
+            @Value("${scheduling.weight.critical:16}") int criticalWeight,
+            @Value("${scheduling.weight.interactive:8}") int interactiveWeight,
+            @Value("${scheduling.weight.bulk:1}") int bulkWeight,
+            MeterRegistry meterRegistry) {
+        var scheduler = new WeightedFairScheduler(capacity, reservedInteractive, Map.of(
+                RequestClass.CRITICAL, criticalWeight,
+                RequestClass.INTERACTIVE, interactiveWeight,
+                RequestClass.BULK, bulkWeight));
+        SchedulerMetrics.bind(scheduler, meterRegistry);
+        return scheduler;
+    }
+}
@@ -0,0 +1,35 @@
+package net.protsenko.syncmodule.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.protsenko.common.snapshot.AggregationSnapshot;
+import net.protsenko.common.snapshot.SnapshotMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+public class SnapshotConfig {
+
+    /**
+     * With {@code snapshot.enabled}, maps the previous run's snapshot at startup and rewrites it
+     * every {@code snapshot.interval} on a platform daemon thread; shutdown writes a final one. The
+     * default file name carries the configured port, so two instances of a module on one host
+     * keep separate files while a restart on the same port still finds its own.
+     */
+    @Bean(destroyMethod = "close")
+    public AggregationSnapshot aggregationSnapshot(
+            @Value("${snapshot.enabled:false}") boolean enabled,
+            @Value("${snapshot.file:${java.io.tmpdir}/${spring.application.name}-${server.port:8080}-aggregations.snap}") Path file,
+            @Value("${snapshot.max-age:2m}") Duration maxAge,
+            @Value("${snapshot.max-entries:100000}") int maxEntries,
+            @Value("${snapshot.interval:10s}") Duration interval,
+            MeterRegistry meterRegistry) {
+        var snapshot = new AggregationSnapshot(enabled, file, maxAge, maxEntries);
+        snapshot.start(interval, Thread.ofPlatform().name("aggregation-snapshot").daemon(true).factory());
+        SnapshotMetrics.bind(snapshot, meterRegistry);
+        return snapshot;
+    }
+}
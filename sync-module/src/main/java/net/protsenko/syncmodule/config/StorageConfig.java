@@ -0,0 +1,51 @@
+package net.protsenko.syncmodule.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManager;
+import net.protsenko.common.repo.ProductRepository;
+import net.protsenko.common.repo.ShardedProductRepository;
+import net.protsenko.syncmodule.mapper.ProductMapper;
+import net.protsenko.syncmodule.repo.JpaBackedProductRepository;
+import net.protsenko.syncmodule.repo.JpaProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class StorageConfig {
+
+    /**
+     * The JPA datasource when {@code storage.shards} is 1. Otherwise one H2 pool per shard,
+     * named by formatting {@code storage.shard-url} with the shard number. Multi-shard reads fan
+     * out on a fixed pool of {@code storage.scatter-threads}.
+     */
+    @Bean
+    public ProductRepository productRepository(
+            @Value("${storage.shards:1}") int shards,
+            @Value("${storage.shard-url:jdbc:h2:mem:syncdb-shard-%d;DB_CLOSE_DELAY=-1}") String shardUrl,
+            @Value("${storage.shard-pool-size:10}") int shardPoolSize,
+            @Value("${storage.scatter-threads:16}") int scatterThreads,
+            JpaProductRepository jpaRepository,
+            ProductMapper mapper,
+            TransactionTemplate transactionTemplate,
+            EntityManager entityManager) {
+        if (shards <= 1) {
+            return new JpaBackedProductRepository(jpaRepository, mapper, transactionTemplate, entityManager);
+        }
+        List<HikariDataSource> dataSources = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            var dataSource = new HikariDataSource();
+            dataSource.setPoolName("products-shard-" + shard);
+            dataSource.setJdbcUrl(String.format(shardUrl, shard));
+            dataSource.setUsername("sa");
+            dataSource.setMaximumPoolSize(shardPoolSize);
+            dataSources.add(dataSource);
+        }
+        return new ShardedProductRepository(dataSources, Executors.newFixedThreadPool(scatterThreads));
+    }
+}
@@ -0,0 +1,21 @@
+package net.protsenko.syncmodule.config;
+
+import net.protsenko.common.trace.RequestTracer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    public RequestTracer requestTracer(
+            @Value("${tracing.sample-rate:0.01}") double sampleRate,
+            @Value("${tracing.slow-threshold:100ms}") Duration slowThreshold,
+            @Value("${tracing.max-spans:32}") int maxSpans,
+            @Value("${tracing.buffer-size:256}") int bufferSize) {
+        return new RequestTracer(sampleRate, slowThreshold, maxSpans, bufferSize);
+    }
+}
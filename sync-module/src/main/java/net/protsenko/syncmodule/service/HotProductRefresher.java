@@ -0,0 +1,63 @@
+package net.protsenko.syncmodule.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.protsenko.common.hotkeys.RefreshPlanner;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the hottest product aggregations prefetched. Each round refreshes the entries that
+ * are about to expire, within the configured downstream-call budget, on virtual threads.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "hot-keys.enabled", havingValue = "true")
+public class HotProductRefresher {
+
+    private final SyncProductService productService;
+    private final RefreshPlanner planner;
+
+    @Value("${hot-keys.refresh-interval:500ms}")
+    private Duration refreshInterval;
+
+    private final ExecutorService refreshExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofVirtual().name("hot-key-refresher").factory());
+
+    @PostConstruct
+    public void start() {
+        timer.scheduleWithFixedDelay(this::refreshRound,
+                refreshInterval.toMillis(), refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void refreshRound() {
+        for (Long productId : planner.plan()) {
+            refreshExecutor.submit(() -> {
+                try {
+                    productService.refreshHotAggregation(productId);
+                } catch (RuntimeException e) {
+                    log.debug("Refresh of hot product {} failed", productId, e);
+                } finally {
+                    planner.done(productId);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        timer.shutdownNow();
+        refreshExecutor.shutdownNow();
+    }
+}
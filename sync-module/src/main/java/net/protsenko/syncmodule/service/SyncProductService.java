@@ -2,16 +2,30 @@ package net.protsenko.syncmodule.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import net.protsenko.common.accounting.ResourceAccount;
+import net.protsenko.common.admission.RequestClass;
+import net.protsenko.common.batching.GroupCommitter;
+import net.protsenko.common.hotkeys.HotAggregationCache;
+import net.protsenko.common.hotkeys.HotKeyTracker;
+import net.protsenko.common.json.JsonLongArrayReader;
 import net.protsenko.common.model.ExternalResponses;
 import net.protsenko.common.model.Product;
 import net.protsenko.common.model.ProductAggregation;
+import net.protsenko.common.ranking.AggregationRankIndex;
+import net.protsenko.common.repo.ProductRepository;
+import net.protsenko.common.scheduling.WeightedFairScheduler;
+import net.protsenko.common.search.ProductSearchIndex;
+import net.protsenko.common.snapshot.AggregationSnapshot;
 import net.protsenko.common.service.ProductService;
+import net.protsenko.common.trace.RequestTimeline;
+import net.protsenko.common.trace.RequestTimeline.Stage;
 import net.protsenko.syncmodule.client.ExternalServiceClient;
-import net.protsenko.syncmodule.mapper.ProductMapper;
-import net.protsenko.syncmodule.repo.JpaProductRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
@@ -22,82 +36,231 @@ import java.util.concurrent.Executors;
 @RequiredArgsConstructor
 public class SyncProductService implements ProductService {
 
-    private final JpaProductRepository repository;
-    private final ProductMapper mapper;
+    private final ProductRepository repository;
+    private final GroupCommitter<Product, Product> productWriter;
     private final ExternalServiceClient externalClient;
+    private final WeightedFairScheduler scheduler;
+    private final HotKeyTracker hotKeys;
+    private final HotAggregationCache hotCache;
+    private final ProductSearchIndex searchIndex;
+    private final AggregationRankIndex rankIndex;
+    private final AggregationSnapshot snapshot;
+
+    @Value("${scheduling.bulk-chunk-size:100}")
+    private int bulkChunkSize;
 
     // Thread pool for parallel HTTP calls
     private final ExecutorService executor = Executors.newFixedThreadPool(
             Runtime.getRuntime().availableProcessors() * 2
     );
 
+    /**
+     * Writes through the group committer, which opens one transaction per batch. No transaction
+     * here: callers holding connections while they wait could starve the drainer of them.
+     */
     @Override
-    @Transactional
     public Product saveProduct(Product product) {
-        var entity = mapper.toEntity(product);
-        var saved = repository.save(entity);
-        return mapper.toDto(saved);
+        RequestTimeline timeline = RequestTimeline.current();
+        int db = timeline.begin(Stage.DB);
+        var saved = productWriter.submit(product);
+        timeline.end(db);
+        // submit returns once the batch has committed
+        searchIndex.index(saved);
+        return saved;
     }
 
     @Override
     @Transactional(readOnly = true)
     public Product getProduct(Long id) {
-        return repository.findById(id)
-                .map(mapper::toDto)
-                .orElseThrow(() -> new RuntimeException("Product not found: " + id));
+        RequestTimeline timeline = RequestTimeline.current();
+        int db = timeline.begin(Stage.DB);
+        var product = repository.findById(id);
+        timeline.end(db);
+        return product.orElseThrow(() -> new RuntimeException("Product not found: " + id));
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<Product> getAllProducts() {
-        return repository.findAll().stream()
-                .map(mapper::toDto)
-                .toList();
+        RequestTimeline timeline = RequestTimeline.current();
+        int db = timeline.begin(Stage.DB);
+        var products = repository.findAll();
+        timeline.end(db);
+        return products;
     }
 
     /**
-     * Main benchmark method: parallel HTTP calls using CompletableFuture.allOf()
+     * Batch lookup; with sharded storage the shards are read in parallel. Unknown ids are skipped.
      */
+    @Transactional(readOnly = true)
+    public List<Product> getProducts(List<Long> ids) {
+        RequestTimeline timeline = RequestTimeline.current();
+        int db = timeline.begin(Stage.DB);
+        var products = repository.findAllByIds(ids);
+        timeline.end(db);
+        return products;
+    }
+
     @Override
     public ProductAggregation getProductAggregation(Long productId) {
+        return getProductAggregation(productId, RequestClass.INTERACTIVE);
+    }
+
+    /**
+     * Serves hot products from the prefetched cache and recent ones from the restart snapshot;
+     * otherwise waits for a downstream slot in the fair scheduler and aggregates.
+     */
+    public ProductAggregation getProductAggregation(Long productId, RequestClass requestClass) {
+        hotKeys.record(productId);
+        ProductAggregation cached = cached(productId);
+        if (cached != null) {
+            return cached;
+        }
+        RequestTimeline timeline = RequestTimeline.current();
+        int slot = timeline.enqueue(Stage.SLOT);
+        acquireSlot(requestClass);
+        timeline.end(slot);
+        try {
+            return aggregate(productId, timeline);
+        } finally {
+            scheduler.release(requestClass);
+        }
+    }
+
+    /**
+     * Main benchmark method: parallel HTTP calls using CompletableFuture.allOf()
+     */
+    private ProductAggregation aggregate(Long productId, RequestTimeline timeline) {
+        return aggregateAsync(productId, timeline).join();
+    }
+
+    /**
+     * Only the three downstream calls run on {@code executor}. The results are combined by
+     * whichever call finishes last, so no pool thread ever blocks on other pool tasks.
+     */
+    private CompletableFuture<ProductAggregation> aggregateAsync(Long productId, RequestTimeline timeline) {
         log.debug("Aggregating data for product {} using CompletableFuture.allOf()", productId);
+        ResourceAccount account = ResourceAccount.current();
 
         CompletableFuture<ExternalResponses.InventoryResponse> inventoryFuture = CompletableFuture
-                .supplyAsync(() -> externalClient.getInventory(productId), executor);
+                .supplyAsync(account.counted(timeline.timed(timeline.enqueue(Stage.INVENTORY),
+                        () -> externalClient.getInventory(productId))), executor);
 
         CompletableFuture<ExternalResponses.PricingResponse> pricingFuture = CompletableFuture
-                .supplyAsync(() -> externalClient.getPricing(productId), executor);
+                .supplyAsync(account.counted(timeline.timed(timeline.enqueue(Stage.PRICING),
+                        () -> externalClient.getPricing(productId))), executor);
 
         CompletableFuture<ExternalResponses.ReviewsResponse> reviewsFuture = CompletableFuture
-                .supplyAsync(() -> externalClient.getReviews(productId), executor);
-
-        CompletableFuture.allOf(inventoryFuture, pricingFuture, reviewsFuture).join();
+                .supplyAsync(account.counted(timeline.timed(timeline.enqueue(Stage.REVIEWS),
+                        () -> externalClient.getReviews(productId))), executor);
 
-        ExternalResponses.InventoryResponse inventory = inventoryFuture.join();
-        ExternalResponses.PricingResponse pricing = pricingFuture.join();
-        ExternalResponses.ReviewsResponse reviews = reviewsFuture.join();
+        return CompletableFuture.allOf(inventoryFuture, pricingFuture, reviewsFuture).thenApply(done -> {
+            ExternalResponses.InventoryResponse inventory = inventoryFuture.join();
+            ExternalResponses.PricingResponse pricing = pricingFuture.join();
+            ExternalResponses.ReviewsResponse reviews = reviewsFuture.join();
 
-        return ProductAggregation.builder()
-                .productId(productId)
-                .stockCount(inventory.getStockCount())
-                .warehouseLocation(inventory.getWarehouseLocation())
-                .currentPrice(pricing.getCurrentPrice())
-                .discountPercent(pricing.getDiscountPercent())
-                .averageRating(reviews.getAverageRating())
-                .reviewCount(reviews.getReviewCount())
-                .build();
+            var aggregation = ProductAggregation.builder()
+                    .productId(productId)
+                    .stockCount(inventory.getStockCount())
+                    .warehouseLocation(inventory.getWarehouseLocation())
+                    .currentPrice(pricing.getCurrentPrice())
+                    .discountPercent(pricing.getDiscountPercent())
+                    .averageRating(reviews.getAverageRating())
+                    .reviewCount(reviews.getReviewCount())
+                    .build();
+            rankIndex.update(aggregation);
+            // A fallback was not computed now; stamped as fresh, a restart would serve it as current
+            if (!inventory.isFallback() && !pricing.isFallback() && !reviews.isFallback()) {
+                snapshot.record(aggregation);
+            }
+            return aggregation;
+        });
     }
 
     @Override
     public List<ProductAggregation> getProductAggregations(List<Long> productIds) {
-        List<CompletableFuture<ProductAggregation>> futures = productIds.stream()
-                .map(id -> CompletableFuture.supplyAsync(
-                        () -> getProductAggregation(id), executor))
-                .toList();
-
-        return futures.stream()
-                .map(CompletableFuture::join)
-                .toList();
+        return getProductAggregations(productIds, RequestClass.BULK);
+    }
+
+    /**
+     * Processes the batch chunk by chunk. Slots are acquired and results awaited on the request
+     * thread. Executor threads only run downstream calls, which never wait on other executor
+     * tasks, so any number of admitted aggregations drains through the pool.
+     */
+    public List<ProductAggregation> getProductAggregations(List<Long> productIds, RequestClass requestClass) {
+        List<ProductAggregation> results = new ArrayList<>(productIds.size());
+        for (int from = 0; from < productIds.size(); from += bulkChunkSize) {
+            List<Long> chunk = productIds.subList(from, Math.min(from + bulkChunkSize, productIds.size()));
+            List<CompletableFuture<ProductAggregation>> futures = new ArrayList<>(chunk.size());
+            for (Long id : chunk) {
+                futures.add(submitAggregation(id, requestClass));
+            }
+            futures.forEach(future -> results.add(future.join()));
+        }
+        return results;
+    }
+
+    /**
+     * Streaming variant. Each chunk is dispatched as soon as it has been parsed, while the rest
+     * of the body is still arriving. Once the scheduler has no free slot the request thread
+     * blocks and stops reading the socket. Buffering is therefore bounded by scheduler capacity
+     * plus one parsed chunk.
+     */
+    public List<ProductAggregation> getProductAggregations(JsonLongArrayReader ids, RequestClass requestClass)
+            throws IOException {
+        List<CompletableFuture<ProductAggregation>> futures = new ArrayList<>();
+        long[] chunk = new long[bulkChunkSize];
+        for (int count; (count = ids.read(chunk)) > 0; ) {
+            for (int i = 0; i < count; i++) {
+                futures.add(submitAggregation(chunk[i], requestClass));
+            }
+        }
+        List<ProductAggregation> results = new ArrayList<>(futures.size());
+        futures.forEach(future -> results.add(future.join()));
+        return results;
+    }
+
+    private CompletableFuture<ProductAggregation> submitAggregation(Long id, RequestClass requestClass) {
+        hotKeys.record(id);
+        ProductAggregation cached = cached(id);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        RequestTimeline timeline = RequestTimeline.current();
+        int slot = timeline.enqueue(Stage.SLOT);
+        acquireSlot(requestClass);
+        timeline.end(slot);
+        return aggregateAsync(id, timeline)
+                .whenComplete((result, error) -> scheduler.release(requestClass));
+    }
+
+    /**
+     * Re-fetches a hot product into the cache. Runs as bulk so refreshes yield to live traffic.
+     */
+    public void refreshHotAggregation(Long productId) {
+        acquireSlot(RequestClass.BULK);
+        try {
+            hotCache.put(aggregate(productId, RequestTimeline.NOOP));
+        } finally {
+            scheduler.release(RequestClass.BULK);
+        }
+    }
+
+    /**
+     * A prefetched hot aggregation, or one restored from the startup snapshot while still fresh.
+     */
+    private ProductAggregation cached(Long productId) {
+        ProductAggregation hot = hotCache.getFresh(productId);
+        return hot != null ? hot : snapshot.getFresh(productId);
+    }
+
+    private void acquireSlot(RequestClass requestClass) {
+        try {
+            scheduler.acquire(requestClass);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a downstream slot", e);
+        }
     }
 
     public void shutdown() {
@@ -0,0 +1,47 @@
+package net.protsenko.syncmodule.web;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import net.protsenko.common.accounting.RequestResourceMeter;
+import net.protsenko.common.accounting.ResourceAccount;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Measures allocation and CPU time of the request thread while a sampled request runs, and
+ * records the total per route once the response is done. Executor tasks that the service wraps
+ * with {@code ResourceAccount.counted} add their threads' share.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+@RequiredArgsConstructor
+public class ResourceAccountingFilter extends OncePerRequestFilter {
+
+    private final RequestResourceMeter meter;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        ResourceAccount account = meter.begin();
+        if (!account.isSampled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        ResourceAccount.bind(account);
+        try (ResourceAccount.Segment ignored = account.start()) {
+            filterChain.doFilter(request, response);
+        } finally {
+            ResourceAccount.unbind();
+            Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            meter.record(account, request.getMethod(), route != null ? route.toString() : "unmatched");
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package net.protsenko.webfluxmodule.client;
+
+import net.protsenko.common.mock.MockResponses;
+import net.protsenko.common.model.ExternalResponses;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Answers in process with the mock server's data and latency model: no socket, no JSON.
+ * Benchmarks then measure framework and concurrency cost alone. Delays are
+ * {@code Mono.delay} timers on the parallel scheduler. Failure injection, capacity and trace
+ * replay stay mock-server features.
+ */
+@Component
+@ConditionalOnProperty(name = "external.service.mode", havingValue = "loopback")
+public class LoopbackReactiveExternalServiceClient implements ReactiveExternalServiceClient {
+
+    private final int minLatencyMs;
+    private final int maxLatencyMs;
+
+    public LoopbackReactiveExternalServiceClient(
+            @Value("${external.loopback.latency-min:50ms}") Duration minLatency,
+            @Value("${external.loopback.latency-max:150ms}") Duration maxLatency) {
+        this.minLatencyMs = (int) minLatency.toMillis();
+        this.maxLatencyMs = (int) Math.max(minLatency.toMillis(), maxLatency.toMillis());
+    }
+
+    @Override
+    public Mono<ExternalResponses.InventoryResponse> getInventory(Long productId) {
+        return delayed(() -> MockResponses.randomInventory(productId, ThreadLocalRandom.current()));
+    }
+
+    @Override
+    public Mono<ExternalResponses.PricingResponse> getPricing(Long productId) {
+        return delayed(() -> MockResponses.randomPricing(productId, ThreadLocalRandom.current()));
+    }
+
+    @Override
+    public Mono<ExternalResponses.ReviewsResponse> getReviews(Long productId) {
+        return delayed(() -> MockResponses.randomReviews(productId, ThreadLocalRandom.current()));
+    }
+
+    private <T> Mono<T> delayed(Supplier<T> response) {
+        return Mono.defer(() -> {
+            int delayMs = MockResponses.randomDelayMs(minLatencyMs, maxLatencyMs, ThreadLocalRandom.current());
+            return delayMs <= 0
+                    ? Mono.fromSupplier(response)
+                    : Mono.delay(Duration.ofMillis(delayMs)).map(tick -> response.get());
+        });
+    }
+}
@@ -1,46 +1,34 @@
 package net.protsenko.webfluxmodule.client;
 
-import lombok.extern.slf4j.Slf4j;
 import net.protsenko.common.model.ExternalResponses;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.stereotype.Component;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
-@Slf4j
-@Component
-public class ReactiveExternalServiceClient {
+import java.util.Collection;
 
-    private final WebClient webClient;
+/**
+ * Inventory, pricing and reviews lookups for a product. {@code external.service.mode} selects
+ * the HTTP client ({@code http}, the default) or the in-process {@code loopback}.
+ */
+public interface ReactiveExternalServiceClient {
 
-    public ReactiveExternalServiceClient(
-            @Value("${external.service.base-url:http://localhost:8090}") String baseUrl) {
-        this.webClient = WebClient.builder()
-                .baseUrl(baseUrl)
-                .build();
-    }
+    Mono<ExternalResponses.InventoryResponse> getInventory(Long productId);
 
-    public Mono<ExternalResponses.InventoryResponse> getInventory(Long productId) {
-        log.debug("Calling inventory service for product {}", productId);
-        return webClient.get()
-                .uri("/api/inventory/{productId}", productId)
-                .retrieve()
-                .bodyToMono(ExternalResponses.InventoryResponse.class);
-    }
+    Mono<ExternalResponses.PricingResponse> getPricing(Long productId);
+
+    Mono<ExternalResponses.ReviewsResponse> getReviews(Long productId);
 
-    public Mono<ExternalResponses.PricingResponse> getPricing(Long productId) {
-        log.debug("Calling pricing service for product {}", productId);
-        return webClient.get()
-                .uri("/api/pricing/{productId}", productId)
-                .retrieve()
-                .bodyToMono(ExternalResponses.PricingResponse.class);
+    /**
+     * Routes synthetic product ids (negative, never stored) to the given stub instead of the
+     * downstreams; {@code null} switches the routing off again. Without a network hop there
+     * is nothing to route, so the default ignores it.
+     */
+    default void setWarmupTarget(String baseUrl) {
     }
 
-    public Mono<ExternalResponses.ReviewsResponse> getReviews(Long productId) {
-        log.debug("Calling reviews service for product {}", productId);
-        return webClient.get()
-                .uri("/api/reviews/{productId}", productId)
-                .retrieve()
-                .bodyToMono(ExternalResponses.ReviewsResponse.class);
+    /**
+     * Drops whatever the client remembers about the given products, such as last-known
+     * fallback responses. The loopback client remembers nothing.
+     */
+    default void forget(Collection<Long> productIds) {
     }
 }
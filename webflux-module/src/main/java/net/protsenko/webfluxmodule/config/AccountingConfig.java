@@ -0,0 +1,37 @@
+package net.protsenko.webfluxmodule.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import net.protsenko.common.accounting.RequestResourceMeter;
+import net.protsenko.webfluxmodule.web.AccountingContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.publisher.Hooks;
+
+@Configuration
+public class AccountingConfig {
+
+    private static final String HOOK_KEY = "resource-accounting";
+
+    /**
+     * The operator hook adds a lift to every operator, also for unsampled requests. So it is
+     * only installed while {@code accounting.sample-rate} is above zero, and the rate defaults
+     * to zero here, unlike in the servlet modules where sampling costs nothing when it misses.
+     */
+    @Bean
+    public RequestResourceMeter requestResourceMeter(
+            @Value("${accounting.sample-rate:0}") double sampleRate,
+            @Value("${spring.application.name}") String module,
+            MeterRegistry meterRegistry) {
+        if (sampleRate > 0) {
+            Hooks.onEachOperator(HOOK_KEY, AccountingContext.lifter());
+        }
+        return new RequestResourceMeter(sampleRate, module, meterRegistry);
+    }
+
+    @PreDestroy
+    public void removeHook() {
+        Hooks.resetOnEachOperator(HOOK_KEY);
+    }
+}
@@ -0,0 +1,48 @@
+package net.protsenko.webfluxmodule.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.protsenko.common.batching.GroupCommitMetrics;
+import net.protsenko.common.batching.GroupCommitter.BatchListener;
+import net.protsenko.common.model.Product;
+import net.protsenko.webfluxmodule.repo.ReactiveProductStore;
+import net.protsenko.webfluxmodule.service.ReactiveGroupCommitter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+@Configuration
+public class GroupCommitConfig {
+
+    /**
+     * With {@code group-commit.enabled}, concurrent saves flow through a sink and are written
+     * in batches, one transaction per batch, or one per shard the batch touches with sharded
+     * storage. Otherwise every save is written on subscription in its own transaction.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ReactiveGroupCommitter<Product, Product> productWriter(
+            @Value("${group-commit.enabled:false}") boolean enabled,
+            @Value("${group-commit.max-batch-size:64}") int maxBatchSize,
+            @Value("${group-commit.max-linger:2ms}") Duration maxLinger,
+            @Value("${group-commit.queue-capacity:4096}") int queueCapacity,
+            ReactiveProductStore store,
+            TransactionalOperator transactionalOperator,
+            MeterRegistry meterRegistry) {
+        Function<List<Product>, Flux<Product>> write =
+                batch -> transactionalOperator.transactional(store.saveAll(batch));
+        BatchListener listener = GroupCommitMetrics.listener("products", meterRegistry);
+        ReactiveGroupCommitter<Product, Product> writer = enabled
+                ? ReactiveGroupCommitter.batching("products", write, maxBatchSize, maxLinger, queueCapacity, listener)
+                : ReactiveGroupCommitter.inline("products", write, listener);
+        Gauge.builder("group.commit.queued", writer, ReactiveGroupCommitter::getQueued)
+                .tag("writer", writer.getName())
+                .register(meterRegistry);
+        return writer;
+    }
+}
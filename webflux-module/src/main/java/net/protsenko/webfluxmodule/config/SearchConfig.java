@@ -0,0 +1,14 @@
+package net.protsenko.webfluxmodule.config;
+
+import net.protsenko.common.search.ProductSearchIndex;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SearchConfig {
+
+    @Bean
+    public ProductSearchIndex productSearchIndex() {
+        return new ProductSearchIndex();
+    }
+}
@@ -0,0 +1,39 @@
+package net.protsenko.webfluxmodule.config;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import net.protsenko.webfluxmodule.mapper.ProductMapper;
+import net.protsenko.webfluxmodule.repo.R2dbcProductStore;
+import net.protsenko.webfluxmodule.repo.ReactiveProductRepository;
+import net.protsenko.webfluxmodule.repo.ReactiveProductStore;
+import net.protsenko.webfluxmodule.repo.ShardedR2dbcProductStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class StorageConfig {
+
+    /**
+     * The R2DBC repository when {@code storage.shards} is 1. Otherwise one pooled connection
+     * factory per shard, named by formatting {@code storage.shard-url} with the shard number.
+     */
+    @Bean
+    public ReactiveProductStore productStore(
+            @Value("${storage.shards:1}") int shards,
+            @Value("${storage.shard-url:r2dbc:pool:h2:mem:///webfluxdb-shard-%d;DB_CLOSE_DELAY=-1}") String shardUrl,
+            ReactiveProductRepository repository,
+            ProductMapper mapper) {
+        if (shards <= 1) {
+            return new R2dbcProductStore(repository, mapper);
+        }
+        List<ConnectionFactory> connectionFactories = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            connectionFactories.add(ConnectionFactories.get(String.format(shardUrl, shard)));
+        }
+        return new ShardedR2dbcProductStore(connectionFactories);
+    }
+}
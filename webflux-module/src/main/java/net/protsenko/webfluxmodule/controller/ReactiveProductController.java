@@ -1,14 +1,23 @@
 package net.protsenko.webfluxmodule.controller;
 
 import lombok.RequiredArgsConstructor;
+import net.protsenko.common.admission.RequestClass;
 import net.protsenko.common.model.Product;
 import net.protsenko.common.model.ProductAggregation;
+import net.protsenko.common.model.ProductSearchHit;
+import net.protsenko.common.ranking.AggregationRankIndex;
+import net.protsenko.webfluxmodule.service.ProductSearchService;
 import net.protsenko.webfluxmodule.service.ReactiveProductService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.codec.DecodingException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 @RestController
@@ -16,7 +25,18 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ReactiveProductController {
 
+    // Overrides the endpoint's default scheduling class: critical, interactive or bulk
+    private static final String REQUEST_CLASS_HEADER = "X-Request-Class";
+
     private final ReactiveProductService productService;
+    private final ProductSearchService searchService;
+    private final AggregationRankIndex rankIndex;
+
+    @Value("${scheduling.default-class.single:interactive}")
+    private RequestClass singleAggregationClass;
+
+    @Value("${scheduling.default-class.bulk:bulk}")
+    private RequestClass bulkAggregationClass;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -34,13 +54,59 @@ public class ReactiveProductController {
         return productService.getAllProducts();
     }
 
+    /**
+     * Products for the given ids; unknown ids are skipped. With sharded storage this is a
+     * scatter-gather read across the shards.
+     */
+    @PostMapping("/batch")
+    public Flux<Product> getProducts(@RequestBody List<Long> ids) {
+        return productService.getProducts(ids);
+    }
+
+    /**
+     * Prefix search over name and description, e.g. {@code ?q=wire key} matches "Wireless Keyboard".
+     */
+    @GetMapping("/search")
+    public Flux<ProductSearchHit> search(@RequestParam String q,
+                                         @RequestParam(defaultValue = "20") int limit,
+                                         @RequestParam(defaultValue = "false") boolean enrich) {
+        return searchService.search(q, limit, enrich);
+    }
+
     @GetMapping("/{id}/aggregation")
-    public Mono<ProductAggregation> getAggregation(@PathVariable Long id) {
-        return productService.getProductAggregation(id);
+    public Mono<ProductAggregation> getAggregation(
+            @PathVariable Long id,
+            @RequestHeader(name = REQUEST_CLASS_HEADER, required = false) String requestClass) {
+        return productService.getProductAggregation(id, RequestClass.parse(requestClass, singleAggregationClass));
+    }
+
+    /**
+     * The body is decoded as a stream of ids rather than a bound {@code List<Long>}, so
+     * aggregation starts while the array is still arriving. A malformed array is a 400.
+     */
+    @PostMapping(path = "/aggregations", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<ProductAggregation> getAggregations(
+            @RequestBody Flux<Long> ids,
+            @RequestHeader(name = REQUEST_CLASS_HEADER, required = false) String requestClass) {
+        Flux<Long> checkedIds = ids.onErrorMap(DecodingException.class, e -> new ResponseStatusException(
+                HttpStatus.BAD_REQUEST, "Expected a JSON array of product ids", e));
+        return productService.getProductAggregations(checkedIds,
+                RequestClass.parse(requestClass, bulkAggregationClass));
+    }
+
+    /**
+     * Products whose effective price (price minus discount) is within [min, max], highest
+     * discount first. Served from aggregations computed so far, without downstream calls.
+     */
+    @GetMapping("/aggregations/price-range")
+    public Flux<ProductAggregation> getByPriceRange(@RequestParam BigDecimal min,
+                                                    @RequestParam BigDecimal max,
+                                                    @RequestParam(defaultValue = "20") int limit) {
+        return Flux.fromIterable(rankIndex.priceRange(min, max, limit));
     }
 
-    @PostMapping("/aggregations")
-    public Flux<ProductAggregation> getAggregations(@RequestBody List<Long> ids) {
-        return productService.getProductAggregations(ids);
+    @GetMapping("/aggregations/top-rated")
+    public Flux<ProductAggregation> getTopRated(@RequestParam(defaultValue = "20") int limit) {
+        return Flux.fromIterable(rankIndex.topRated(limit));
     }
 }
\ No newline at end of file
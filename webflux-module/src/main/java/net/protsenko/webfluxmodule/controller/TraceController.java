@@ -0,0 +1,27 @@
+package net.protsenko.webfluxmodule.controller;
+
+import lombok.RequiredArgsConstructor;
+import net.protsenko.common.trace.RequestTracer;
+import net.protsenko.common.trace.TraceRecord;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+@RestController
+@RequestMapping("/api/traces")
+@RequiredArgsConstructor
+public class TraceController {
+
+    private final RequestTracer tracer;
+
+    /**
+     * Sampled requests slower than {@code tracing.slow-threshold}, newest first. Spans on the
+     * critical path are flagged.
+     */
+    @GetMapping("/slow")
+    public Flux<TraceRecord> getSlowTraces(@RequestParam(defaultValue = "50") int limit) {
+        return Flux.fromIterable(tracer.slowTraces(limit));
+    }
+}
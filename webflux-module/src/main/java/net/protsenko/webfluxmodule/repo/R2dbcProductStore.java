@@ -0,0 +1,81 @@
+package net.protsenko.webfluxmodule.repo;
+
+import lombok.RequiredArgsConstructor;
+import net.protsenko.common.model.Product;
+import net.protsenko.webfluxmodule.entity.ProductEntity;
+import net.protsenko.webfluxmodule.mapper.ProductMapper;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@link ReactiveProductStore} over the single R2DBC connection factory, used when
+ * {@code storage.shards} is 1.
+ */
+@RequiredArgsConstructor
+public class R2dbcProductStore implements ReactiveProductStore {
+
+    private final ReactiveProductRepository repository;
+    private final ProductMapper mapper;
+
+    @Override
+    public Mono<Product> save(Product product) {
+        return Mono.defer(() -> {
+            var entity = mapper.toEntity(product);
+            if (entity.getCreatedAt() == null) {
+                entity.setCreatedAt(Instant.now());
+            }
+            return repository.save(entity).map(mapper::toDto);
+        });
+    }
+
+    @Override
+    public Flux<Product> saveAll(List<Product> products) {
+        return Flux.defer(() -> {
+            Instant now = Instant.now();
+            List<ProductEntity> entities = new ArrayList<>(products.size());
+            for (Product product : products) {
+                var entity = mapper.toEntity(product);
+                if (entity.getCreatedAt() == null) {
+                    entity.setCreatedAt(now);
+                }
+                entities.add(entity);
+            }
+            return repository.saveAll(entities).map(mapper::toDto);
+        });
+    }
+
+    @Override
+    public Mono<Product> findById(Long id) {
+        return repository.findById(id).map(mapper::toDto);
+    }
+
+    @Override
+    public Flux<Product> findAll() {
+        return repository.findAll().map(mapper::toDto);
+    }
+
+    @Override
+    public Flux<Product> findAllByIds(Collection<Long> ids) {
+        return repository.findAllByIdIn(ids).map(mapper::toDto);
+    }
+
+    @Override
+    public Mono<Void> deleteById(Long id) {
+        return repository.deleteById(id);
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return repository.deleteAll();
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return repository.count();
+    }
+}
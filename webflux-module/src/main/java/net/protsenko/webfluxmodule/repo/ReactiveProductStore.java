@@ -0,0 +1,34 @@
+package net.protsenko.webfluxmodule.repo;
+
+import net.protsenko.common.model.Product;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Non-blocking counterpart of the common {@code ProductRepository}, implemented by a single
+ * R2DBC repository or by a set of shards.
+ */
+public interface ReactiveProductStore {
+
+    Mono<Product> save(Product product);
+
+    /**
+     * Saves every product, emitting the saved products in the given order.
+     */
+    Flux<Product> saveAll(List<Product> products);
+
+    Mono<Product> findById(Long id);
+
+    Flux<Product> findAll();
+
+    Flux<Product> findAllByIds(Collection<Long> ids);
+
+    Mono<Void> deleteById(Long id);
+
+    Mono<Void> deleteAll();
+
+    Mono<Long> count();
+}
@@ -0,0 +1,270 @@
+package net.protsenko.webfluxmodule.repo;
+
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Readable;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import net.protsenko.common.model.Product;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Products spread over N R2DBC connection factories by {@code id mod N}. Each shard
+ * generates its own ids as {@code sequence * N + shard}, so every id routes to its shard
+ * without a lookup. New products go to the shards round-robin.
+ * <p>
+ * Reads that touch several shards subscribe to all of them at once and merge rows as they
+ * arrive. They do not keep the order of the requested ids. Shard writes do not join a
+ * surrounding transaction: a single save auto-commits, and a batch commits in one local
+ * transaction per shard it touches, not one overall.
+ */
+public class ShardedR2dbcProductStore implements ReactiveProductStore, Closeable {
+
+    private static final String COLUMNS = "id, name, description, price, created_at";
+
+    private static final String SCHEMA = """
+            CREATE TABLE IF NOT EXISTS products (
+                id BIGINT PRIMARY KEY,
+                name VARCHAR(255) NOT NULL,
+                description VARCHAR(1000),
+                price DECIMAL(10,2),
+                created_at TIMESTAMP
+            )""";
+
+    // Positional form for batches built directly on an R2DBC statement
+    private static final String BATCH_UPSERT =
+            "MERGE INTO products (" + COLUMNS + ") KEY (id) VALUES ($1, $2, $3, $4, $5)";
+
+    // Keeps IN lists within what the database plans efficiently
+    private static final int MAX_IN_LIST = 1000;
+
+    private final List<ConnectionFactory> connectionFactories;
+    private final List<DatabaseClient> shards;
+    private final List<TransactionalOperator> shardTransactions;
+    private final List<AtomicLong> sequences;
+    private final AtomicLong nextShard = new AtomicLong();
+
+    /**
+     * Creates the schema on every shard and reads each shard's highest id. This blocks, so
+     * it is meant for startup only.
+     */
+    public ShardedR2dbcProductStore(List<ConnectionFactory> connectionFactories) {
+        this.connectionFactories = connectionFactories;
+        this.shards = new ArrayList<>(connectionFactories.size());
+        this.shardTransactions = new ArrayList<>(connectionFactories.size());
+        this.sequences = new ArrayList<>(connectionFactories.size());
+        for (ConnectionFactory connectionFactory : connectionFactories) {
+            DatabaseClient shard = DatabaseClient.create(connectionFactory);
+            shard.sql(SCHEMA).then().block();
+            Long maxId = shard.sql("SELECT COALESCE(MAX(id), 0) FROM products")
+                    .map(row -> row.get(0, Long.class))
+                    .one()
+                    .block();
+            shards.add(shard);
+            shardTransactions.add(TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory)));
+            sequences.add(new AtomicLong(maxId / connectionFactories.size()));
+        }
+    }
+
+    @Override
+    public Mono<Product> save(Product product) {
+        return Mono.defer(() -> insert(withId(product)));
+    }
+
+    /**
+     * Assigns ids up front, then writes one statement batch per shard, the shards concurrently,
+     * each in its own shard transaction. If one shard fails, the others may already have
+     * committed. Emits the saved products in the given order once every shard has been written.
+     */
+    @Override
+    public Flux<Product> saveAll(List<Product> products) {
+        return Flux.defer(() -> {
+            List<Product> saved = new ArrayList<>(products.size());
+            Map<Integer, List<Product>> productsByShard = new TreeMap<>();
+            for (Product product : products) {
+                Product withId = withId(product);
+                saved.add(withId);
+                productsByShard.computeIfAbsent(shardOf(withId.getId()), shard -> new ArrayList<>()).add(withId);
+            }
+            return Flux.fromIterable(productsByShard.entrySet())
+                    .flatMap(entry -> shardTransactions.get(entry.getKey())
+                            .transactional(insertBatch(shards.get(entry.getKey()), entry.getValue())), shards.size())
+                    .thenMany(Flux.fromIterable(saved));
+        });
+    }
+
+    @Override
+    public Mono<Product> findById(Long id) {
+        return Mono.defer(() -> shards.get(shardOf(id))
+                .sql("SELECT " + COLUMNS + " FROM products WHERE id = :id")
+                .bind("id", id)
+                .map(ShardedR2dbcProductStore::toProduct)
+                .one());
+    }
+
+    @Override
+    public Flux<Product> findAll() {
+        return Flux.fromIterable(shards)
+                .flatMap(shard -> shard.sql("SELECT " + COLUMNS + " FROM products")
+                        .map(ShardedR2dbcProductStore::toProduct)
+                        .all(), shards.size());
+    }
+
+    @Override
+    public Flux<Product> findAllByIds(Collection<Long> ids) {
+        return Flux.defer(() -> {
+            Map<Integer, List<Long>> idsByShard = new TreeMap<>();
+            for (Long id : ids) {
+                idsByShard.computeIfAbsent(shardOf(id), shard -> new ArrayList<>()).add(id);
+            }
+            return Flux.fromIterable(idsByShard.entrySet())
+                    .flatMap(entry -> findInShard(shards.get(entry.getKey()), entry.getValue()), shards.size());
+        });
+    }
+
+    @Override
+    public Mono<Void> deleteById(Long id) {
+        return Mono.defer(() -> shards.get(shardOf(id))
+                .sql("DELETE FROM products WHERE id = :id")
+                .bind("id", id)
+                .then());
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return Flux.fromIterable(shards)
+                .flatMap(shard -> shard.sql("DELETE FROM products").then())
+                .then();
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return Flux.fromIterable(shards)
+                .flatMap(shard -> shard.sql("SELECT COUNT(*) FROM products")
+                        .map(row -> row.get(0, Long.class))
+                        .one())
+                .reduce(0L, Long::sum);
+    }
+
+    @Override
+    public void close() {
+        for (ConnectionFactory connectionFactory : connectionFactories) {
+            if (connectionFactory instanceof Disposable pool) {
+                pool.dispose();
+            }
+        }
+    }
+
+    private Product withId(Product product) {
+        int shardCount = shards.size();
+        Long id = product.getId();
+        if (id == null) {
+            int shard = (int) (nextShard.getAndIncrement() % shardCount);
+            id = sequences.get(shard).incrementAndGet() * shardCount + shard;
+        } else {
+            // An explicit id must never be handed out again by the shard's sequence
+            sequences.get(shardOf(id)).accumulateAndGet(id / shardCount, Math::max);
+        }
+        return Product.builder()
+                .id(id)
+                .name(product.getName())
+                .description(product.getDescription())
+                .price(product.getPrice())
+                .createdAt(product.getCreatedAt() != null ? product.getCreatedAt() : Instant.now())
+                .build();
+    }
+
+    private Mono<Product> insert(Product product) {
+        var spec = shards.get(shardOf(product.getId()))
+                .sql("MERGE INTO products (" + COLUMNS + ") KEY (id) "
+                        + "VALUES (:id, :name, :description, :price, :createdAt)")
+                .bind("id", product.getId())
+                .bind("createdAt", LocalDateTime.ofInstant(product.getCreatedAt(), ZoneOffset.UTC));
+        spec = product.getName() != null ? spec.bind("name", product.getName()) : spec.bindNull("name", String.class);
+        spec = product.getDescription() != null
+                ? spec.bind("description", product.getDescription())
+                : spec.bindNull("description", String.class);
+        spec = product.getPrice() != null ? spec.bind("price", product.getPrice()) : spec.bindNull("price", BigDecimal.class);
+        return spec.then().thenReturn(product);
+    }
+
+    /**
+     * Binds every product as one parameter set of a single statement, so the shard gets one
+     * round trip instead of one per row.
+     */
+    private static Mono<Void> insertBatch(DatabaseClient shard, List<Product> products) {
+        return shard.inConnectionMany(connection -> {
+            Statement statement = connection.createStatement(BATCH_UPSERT);
+            for (int i = 0; i < products.size(); i++) {
+                if (i > 0) {
+                    statement.add();
+                }
+                bindRow(statement, products.get(i));
+            }
+            return Flux.from(statement.execute()).flatMap(Result::getRowsUpdated);
+        }).then();
+    }
+
+    private static void bindRow(Statement statement, Product product) {
+        statement.bind(0, product.getId());
+        if (product.getName() != null) {
+            statement.bind(1, product.getName());
+        } else {
+            statement.bindNull(1, String.class);
+        }
+        if (product.getDescription() != null) {
+            statement.bind(2, product.getDescription());
+        } else {
+            statement.bindNull(2, String.class);
+        }
+        if (product.getPrice() != null) {
+            statement.bind(3, product.getPrice());
+        } else {
+            statement.bindNull(3, BigDecimal.class);
+        }
+        statement.bind(4, LocalDateTime.ofInstant(product.getCreatedAt(), ZoneOffset.UTC));
+    }
+
+    private int shardOf(long id) {
+        return (int) Math.floorMod(id, (long) shards.size());
+    }
+
+    private static Flux<Product> findInShard(DatabaseClient shard, List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += MAX_IN_LIST) {
+            chunks.add(ids.subList(from, Math.min(from + MAX_IN_LIST, ids.size())));
+        }
+        return Flux.fromIterable(chunks)
+                .concatMap(chunk -> shard.sql("SELECT " + COLUMNS + " FROM products WHERE id IN (:ids)")
+                        .bind("ids", chunk)
+                        .map(ShardedR2dbcProductStore::toProduct)
+                        .all());
+    }
+
+    private static Product toProduct(Readable row) {
+        LocalDateTime createdAt = row.get("created_at", LocalDateTime.class);
+        return Product.builder()
+                .id(row.get("id", Long.class))
+                .name(row.get("name", String.class))
+                .description(row.get("description", String.class))
+                .price(row.get("price", BigDecimal.class))
+                .createdAt(createdAt != null ? createdAt.toInstant(ZoneOffset.UTC) : null)
+                .build();
+    }
+}
@@ -0,0 +1,54 @@
+package net.protsenko.webfluxmodule.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.protsenko.common.hotkeys.RefreshPlanner;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Keeps the hottest product aggregations prefetched. Each round refreshes the entries that
+ * are about to expire, within the configured downstream-call budget; ticks that arrive while
+ * a round is still running are dropped.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "hot-keys.enabled", havingValue = "true")
+public class HotProductRefresher {
+
+    private final ReactiveProductService productService;
+    private final RefreshPlanner planner;
+
+    @Value("${hot-keys.refresh-interval:500ms}")
+    private Duration refreshInterval;
+
+    private Disposable subscription;
+
+    @PostConstruct
+    public void start() {
+        subscription = Flux.interval(refreshInterval, refreshInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> Flux.fromIterable(planner.plan())
+                        .flatMap(productId -> productService.refreshHotAggregation(productId)
+                                .onErrorResume(e -> {
+                                    log.debug("Refresh of hot product {} failed", productId, e);
+                                    return Mono.empty();
+                                })
+                                .doFinally(signal -> planner.done(productId))), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscription.dispose();
+    }
+}
@@ -0,0 +1,64 @@
+package net.protsenko.webfluxmodule.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.protsenko.common.admission.RequestClass;
+import net.protsenko.common.model.Product;
+import net.protsenko.common.model.ProductAggregation;
+import net.protsenko.common.model.ProductSearchHit;
+import net.protsenko.common.search.ProductSearchIndex;
+import net.protsenko.webfluxmodule.repo.ReactiveProductStore;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductSearchService {
+
+    private final ProductSearchIndex index;
+    private final ReactiveProductStore store;
+    private final ReactiveProductService productService;
+
+    /**
+     * Streams the products table into the index before the application reports ready.
+     * Runs on the startup thread, so blocking for completion here is fine.
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void buildIndex() {
+        long start = System.nanoTime();
+        store.findAll()
+                .doOnNext(index::index)
+                .then()
+                .block();
+        log.info("Search index built: {} products, {} terms in {} ms",
+                index.size(), index.termCount(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public Flux<ProductSearchHit> search(String query, int limit, boolean enrich) {
+        List<Long> ids = index.search(query, limit);
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        Mono<Map<Long, Product>> products = store.findAllByIds(ids)
+                .collectMap(Product::getId);
+        Mono<Map<Long, ProductAggregation>> aggregations = enrich
+                ? productService.getProductAggregations(ids, RequestClass.INTERACTIVE)
+                        .collectMap(ProductAggregation::getProductId)
+                : Mono.just(Map.of());
+
+        return Mono.zip(products, aggregations)
+                .flatMapMany(tuple -> Flux.fromIterable(ids)
+                        .filter(tuple.getT1()::containsKey)
+                        .map(id -> ProductSearchHit.builder()
+                                .product(tuple.getT1().get(id))
+                                .aggregation(tuple.getT2().get(id))
+                                .build()));
+    }
+}
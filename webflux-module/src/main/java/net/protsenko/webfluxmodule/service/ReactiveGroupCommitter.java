@@ -0,0 +1,147 @@
+package net.protsenko.webfluxmodule.service;
+
+import net.protsenko.common.batching.GroupCommitter.BatchListener;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Reactive counterpart of the common {@code GroupCommitter}. Submissions are emitted into a
+ * bounded unicast sink. {@code bufferTimeout} closes a batch at {@code maxBatchSize} items or
+ * {@code maxLinger} after its first item, and batches are written one at a time. Each
+ * subscriber gets its own result, or the batch's failure.
+ * <p>
+ * {@code bufferTimeout} runs with fair backpressure: while a batch is being written, it stops
+ * requesting, and new submissions wait in the sink queue. Once that queue is full,
+ * {@code submit} fails fast instead of blocking an event loop.
+ * <p>
+ * An inline committer has no pipeline. Each subscription writes a batch of one.
+ */
+public class ReactiveGroupCommitter<T, R> implements Disposable {
+
+    private record Pending<T, R>(T item, long enqueuedAt, Sinks.One<R> result) {
+    }
+
+    private final String name;
+    private final Function<List<T>, Flux<R>> writer;
+    private final BatchListener listener;
+    private final Sinks.Many<Pending<T, R>> sink;
+    private final Disposable pipeline;
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private ReactiveGroupCommitter(String name, Function<List<T>, Flux<R>> writer, int maxBatchSize,
+                                   Duration maxLinger, int queueCapacity, BatchListener listener) {
+        this.name = name;
+        this.writer = writer;
+        this.listener = listener;
+        if (maxBatchSize <= 0) {
+            this.sink = null;
+            this.pipeline = null;
+        } else {
+            this.sink = Sinks.many().unicast().onBackpressureBuffer(Queues.<Pending<T, R>>get(queueCapacity).get());
+            this.pipeline = sink.asFlux()
+                    .doOnNext(pending -> queued.decrementAndGet())
+                    .bufferTimeout(maxBatchSize, maxLinger, true)
+                    .concatMap(this::write, 1)
+                    .subscribe();
+        }
+    }
+
+    /**
+     * @param writer writes a batch and emits one result per item, in order
+     */
+    public static <T, R> ReactiveGroupCommitter<T, R> batching(String name, Function<List<T>, Flux<R>> writer,
+                                                                int maxBatchSize, Duration maxLinger,
+                                                                int queueCapacity, BatchListener listener) {
+        if (maxBatchSize < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("maxBatchSize and queueCapacity must be positive");
+        }
+        return new ReactiveGroupCommitter<>(name, writer, maxBatchSize, maxLinger, queueCapacity, listener);
+    }
+
+    public static <T, R> ReactiveGroupCommitter<T, R> inline(String name, Function<List<T>, Flux<R>> writer,
+                                                              BatchListener listener) {
+        return new ReactiveGroupCommitter<>(name, writer, 0, Duration.ZERO, 0, listener);
+    }
+
+    /**
+     * Completes once the batch containing {@code item} has been written.
+     */
+    public Mono<R> submit(T item) {
+        if (pipeline == null) {
+            // single() drains the writer; next() would cancel it and roll back its transaction
+            return writer.apply(List.of(item))
+                    .single()
+                    .doOnSuccess(result -> listener.batchWritten(1, 0));
+        }
+        return Mono.defer(() -> {
+            Pending<T, R> pending = new Pending<>(item, System.nanoTime(), Sinks.one());
+            queued.incrementAndGet();
+            // Concurrent submitters only spin while another one is inside emitNext
+            Sinks.EmitResult emitted = Sinks.EmitResult.FAIL_NON_SERIALIZED;
+            while (emitted == Sinks.EmitResult.FAIL_NON_SERIALIZED) {
+                emitted = sink.tryEmitNext(pending);
+            }
+            if (emitted.isFailure()) {
+                queued.decrementAndGet();
+                return Mono.error(new IllegalStateException("Group commit " + name + " rejected the write: " + emitted));
+            }
+            return pending.result().asMono();
+        });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * Stops accepting writes. Batches already queued are still written.
+     */
+    @Override
+    public void dispose() {
+        if (pipeline != null) {
+            sink.tryEmitComplete();
+        }
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return pipeline == null || pipeline.isDisposed();
+    }
+
+    private Mono<Void> write(List<Pending<T, R>> batch) {
+        long lingerNanos = System.nanoTime() - batch.get(0).enqueuedAt();
+        List<T> items = new ArrayList<>(batch.size());
+        for (Pending<T, R> pending : batch) {
+            items.add(pending.item());
+        }
+        return Flux.defer(() -> writer.apply(items))
+                .collectList()
+                .doOnNext(results -> {
+                    if (results.size() != batch.size()) {
+                        throw new IllegalStateException("Writer returned " + results.size() + " results for "
+                                + batch.size() + " items");
+                    }
+                    for (int i = 0; i < batch.size(); i++) {
+                        batch.get(i).result().tryEmitValue(results.get(i));
+                    }
+                })
+                .doOnError(e -> batch.forEach(pending -> pending.result().tryEmitError(e)))
+                .doFinally(signal -> listener.batchWritten(batch.size(), lingerNanos))
+                .then()
+                // A failed batch must not terminate the pipeline
+                .onErrorResume(e -> Mono.empty());
+    }
+}
@@ -2,17 +2,26 @@ package net.protsenko.webfluxmodule.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import net.protsenko.common.admission.RequestClass;
+import net.protsenko.common.hotkeys.HotAggregationCache;
+import net.protsenko.common.hotkeys.HotKeyTracker;
 import net.protsenko.common.model.Product;
 import net.protsenko.common.model.ProductAggregation;
+import net.protsenko.common.ranking.AggregationRankIndex;
+import net.protsenko.common.scheduling.WeightedFairScheduler;
+import net.protsenko.common.search.ProductSearchIndex;
+import net.protsenko.common.snapshot.AggregationSnapshot;
+import net.protsenko.common.trace.RequestTimeline;
+import net.protsenko.common.trace.RequestTimeline.Stage;
 import net.protsenko.webfluxmodule.client.ReactiveExternalServiceClient;
-import net.protsenko.webfluxmodule.mapper.ProductMapper;
-import net.protsenko.webfluxmodule.repo.ReactiveProductRepository;
+import net.protsenko.webfluxmodule.repo.ReactiveProductStore;
+import net.protsenko.webfluxmodule.web.TimelineContext;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.time.Instant;
 import java.util.List;
 
 @Slf4j
@@ -20,58 +29,162 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ReactiveProductService {
 
-    private final ReactiveProductRepository repository;
-    private final ProductMapper mapper;
+    private final ReactiveProductStore store;
+    private final ReactiveGroupCommitter<Product, Product> productWriter;
     private final ReactiveExternalServiceClient externalClient;
+    private final WeightedFairScheduler scheduler;
+    private final HotKeyTracker hotKeys;
+    private final HotAggregationCache hotCache;
+    private final ProductSearchIndex searchIndex;
+    private final AggregationRankIndex rankIndex;
+    private final AggregationSnapshot snapshot;
 
-    @Transactional
+    @Value("${scheduling.bulk-chunk-size:100}")
+    private int bulkChunkSize;
+
+    /**
+     * Writes through the group committer, which opens one transaction per batch. No transaction
+     * here: subscribers holding connections while they wait could starve the batch writer of them.
+     */
     public Mono<Product> saveProduct(Product product) {
-        var entity = mapper.toEntity(product);
-        if (entity.getCreatedAt() == null) {
-            entity.setCreatedAt(Instant.now());
-        }
-        return repository.save(entity)
-                .map(mapper::toDto);
+        return TimelineContext.timed(Stage.DB, productWriter.submit(product))
+                .doOnNext(searchIndex::index);
     }
 
     @Transactional(readOnly = true)
     public Mono<Product> getProduct(Long id) {
-        return repository.findById(id)
-                .map(mapper::toDto)
+        return TimelineContext.timed(Stage.DB, store.findById(id))
                 .switchIfEmpty(Mono.error(
                         new RuntimeException("Product not found: " + id)));
     }
 
     @Transactional(readOnly = true)
     public Flux<Product> getAllProducts() {
-        return repository.findAll()
-                .map(mapper::toDto);
+        return TimelineContext.timed(Stage.DB, store.findAll());
+    }
+
+    /**
+     * Batch lookup; with sharded storage the shards are queried concurrently. Unknown ids are skipped.
+     */
+    @Transactional(readOnly = true)
+    public Flux<Product> getProducts(List<Long> ids) {
+        return TimelineContext.timed(Stage.DB, store.findAllByIds(ids));
     }
 
     public Mono<ProductAggregation> getProductAggregation(Long productId) {
+        return getProductAggregation(productId, RequestClass.INTERACTIVE);
+    }
+
+    public Mono<ProductAggregation> getProductAggregation(Long productId, RequestClass requestClass) {
+        return Mono.deferContextual(context ->
+                getProductAggregation(productId, requestClass, TimelineContext.current(context)));
+    }
+
+    /**
+     * Serves hot products from the prefetched cache and recent ones from the restart snapshot;
+     * otherwise waits for a scheduler slot and aggregates. The timeline is read once per request
+     * by the caller, so unsampled requests skip the span wrappers entirely.
+     */
+    private Mono<ProductAggregation> getProductAggregation(Long productId, RequestClass requestClass,
+                                                           RequestTimeline timeline) {
+        return Mono.defer(() -> {
+            hotKeys.record(productId);
+            ProductAggregation cached = cached(productId);
+            return cached != null ? Mono.just(cached) : aggregateInSlot(productId, requestClass, timeline);
+        });
+    }
+
+    /**
+     * A prefetched hot aggregation, or one restored from the startup snapshot while still fresh.
+     */
+    private ProductAggregation cached(Long productId) {
+        ProductAggregation hot = hotCache.getFresh(productId);
+        return hot != null ? hot : snapshot.getFresh(productId);
+    }
+
+    /**
+     * Re-fetches a hot product into the cache. Runs as bulk so refreshes yield to live traffic.
+     */
+    public Mono<Void> refreshHotAggregation(Long productId) {
+        return aggregateInSlot(productId, RequestClass.BULK, RequestTimeline.NOOP)
+                .doOnNext(hotCache::put)
+                .then();
+    }
+
+    private Mono<ProductAggregation> aggregateInSlot(Long productId, RequestClass requestClass,
+                                                     RequestTimeline timeline) {
+        return Mono.usingWhen(
+                TimelineContext.waited(timeline, Stage.SLOT, acquireSlot(requestClass)),
+                slot -> aggregate(productId, timeline),
+                slot -> Mono.fromRunnable(() -> scheduler.release(slot)));
+    }
+
+    private Mono<ProductAggregation> aggregate(Long productId, RequestTimeline timeline) {
         log.debug("Aggregating data for product {} using flatMap chain", productId);
 
-        return externalClient.getInventory(productId)
+        return TimelineContext.timed(timeline, Stage.INVENTORY, externalClient.getInventory(productId))
                 .flatMap(inventory ->
                         Mono.zip(
                                 Mono.just(inventory),
-                                externalClient.getPricing(productId),
-                                externalClient.getReviews(productId)
+                                TimelineContext.timed(timeline, Stage.PRICING, externalClient.getPricing(productId)),
+                                TimelineContext.timed(timeline, Stage.REVIEWS, externalClient.getReviews(productId))
                         )
                 )
-                .map(tuple -> ProductAggregation.builder()
-                        .productId(productId)
-                        .stockCount(tuple.getT1().getStockCount())
-                        .warehouseLocation(tuple.getT1().getWarehouseLocation())
-                        .currentPrice(tuple.getT2().getCurrentPrice())
-                        .discountPercent(tuple.getT2().getDiscountPercent())
-                        .averageRating(tuple.getT3().getAverageRating())
-                        .reviewCount(tuple.getT3().getReviewCount())
-                        .build());
+                .map(tuple -> {
+                    var inventory = tuple.getT1();
+                    var pricing = tuple.getT2();
+                    var reviews = tuple.getT3();
+                    var aggregation = ProductAggregation.builder()
+                            .productId(productId)
+                            .stockCount(inventory.getStockCount())
+                            .warehouseLocation(inventory.getWarehouseLocation())
+                            .currentPrice(pricing.getCurrentPrice())
+                            .discountPercent(pricing.getDiscountPercent())
+                            .averageRating(reviews.getAverageRating())
+                            .reviewCount(reviews.getReviewCount())
+                            .build();
+                    rankIndex.update(aggregation);
+                    // A fallback was not computed now; stamped as fresh, a restart would serve it as current
+                    if (!inventory.isFallback() && !pricing.isFallback() && !reviews.isFallback()) {
+                        snapshot.record(aggregation);
+                    }
+                    return aggregation;
+                });
     }
 
     public Flux<ProductAggregation> getProductAggregations(List<Long> productIds) {
-        return Flux.fromIterable(productIds)
-                .flatMap(this::getProductAggregation, 100);
+        return getProductAggregations(productIds, RequestClass.BULK);
+    }
+
+    public Flux<ProductAggregation> getProductAggregations(List<Long> productIds, RequestClass requestClass) {
+        return getProductAggregations(Flux.fromIterable(productIds), requestClass);
+    }
+
+    /**
+     * Ids can still be arriving from the request body. Chunks are subscribed one after another,
+     * and at most one chunk is buffered ahead. Demand on the body, and so reads from the socket,
+     * follows aggregation progress. Within a chunk every aggregation waits for its scheduler
+     * slot without holding a thread.
+     */
+    public Flux<ProductAggregation> getProductAggregations(Flux<Long> productIds, RequestClass requestClass) {
+        return Flux.deferContextual(context -> {
+            RequestTimeline timeline = TimelineContext.current(context);
+            return productIds
+                    .buffer(bulkChunkSize)
+                    .concatMap(chunk -> Flux.fromIterable(chunk)
+                            .flatMap(id -> getProductAggregation(id, requestClass, timeline), chunk.size()), 1);
+        });
+    }
+
+    /**
+     * Emits once the fair scheduler grants a slot. A grant that races with cancellation is
+     * discarded by the sink and handed straight back.
+     */
+    private Mono<RequestClass> acquireSlot(RequestClass requestClass) {
+        return Mono.<RequestClass>create(sink -> {
+                    var ticket = scheduler.acquire(requestClass, () -> sink.success(requestClass));
+                    sink.onCancel(() -> scheduler.cancel(ticket));
+                })
+                .doOnDiscard(RequestClass.class, scheduler::release);
     }
 }
\ No newline at end of file
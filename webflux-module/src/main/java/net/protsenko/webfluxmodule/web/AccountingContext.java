@@ -0,0 +1,99 @@
+package net.protsenko.webfluxmodule.web;
+
+import net.protsenko.common.accounting.ResourceAccount;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Operators;
+import reactor.util.context.Context;
+
+import java.util.function.Function;
+
+/**
+ * Reactor counterpart of the servlet modules' thread-bound resource account. Reactive work
+ * hops between event-loop and client threads, so there is no request thread to measure.
+ * Instead {@link #lifter()} is installed as an {@code onEachOperator} hook. For subscriptions
+ * whose context carries a sampled account, every signal into a subscriber is wrapped in a
+ * segment: onSubscribe, onNext, onError and onComplete, plus request and cancel going
+ * upstream. Nested signals on one thread collapse into the outermost segment. Other
+ * subscriptions keep their original subscriber.
+ */
+public final class AccountingContext {
+
+    private AccountingContext() {
+    }
+
+    public static Context with(ResourceAccount account) {
+        return Context.of(ResourceAccount.class, account);
+    }
+
+    public static Function<? super Publisher<Object>, ? extends Publisher<Object>> lifter() {
+        return Operators.<Object, Object>lift((scannable, subscriber) -> {
+            ResourceAccount account = subscriber.currentContext().getOrDefault(ResourceAccount.class, null);
+            if (account == null || !account.isSampled()) {
+                return subscriber;
+            }
+            return new AccountingSubscriber<>(subscriber, account);
+        });
+    }
+
+    private static final class AccountingSubscriber<T> implements CoreSubscriber<T>, Subscription {
+
+        private final CoreSubscriber<? super T> actual;
+        private final ResourceAccount account;
+        private Subscription upstream;
+
+        private AccountingSubscriber(CoreSubscriber<? super T> actual, ResourceAccount account) {
+            this.actual = actual;
+            this.account = account;
+        }
+
+        @Override
+        public Context currentContext() {
+            return actual.currentContext();
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            upstream = subscription;
+            try (ResourceAccount.Segment ignored = account.start()) {
+                actual.onSubscribe(this);
+            }
+        }
+
+        @Override
+        public void onNext(T value) {
+            try (ResourceAccount.Segment ignored = account.start()) {
+                actual.onNext(value);
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            try (ResourceAccount.Segment ignored = account.start()) {
+                actual.onError(error);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            try (ResourceAccount.Segment ignored = account.start()) {
+                actual.onComplete();
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            try (ResourceAccount.Segment ignored = account.start()) {
+                upstream.request(n);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            try (ResourceAccount.Segment ignored = account.start()) {
+                upstream.cancel();
+            }
+        }
+    }
+}
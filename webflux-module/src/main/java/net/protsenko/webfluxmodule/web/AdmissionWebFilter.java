@@ -0,0 +1,55 @@
+package net.protsenko.webfluxmodule.web;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.protsenko.common.admission.AdmissionController;
+import net.protsenko.common.admission.AdmissionMetrics;
+import net.protsenko.common.admission.RequestClass;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Sheds load with a fast 503 + Retry-After before subscribing to the handler,
+ * so overload shows up as rejections instead of an unbounded number of subscriptions.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "admission.enabled", havingValue = "true")
+public class AdmissionWebFilter implements WebFilter {
+
+    private final AdmissionController admissionController;
+
+    public AdmissionWebFilter(
+            @Value("${admission.max-in-flight:1000}") int maxInFlight,
+            @Value("${admission.bulk-max-in-flight:16}") int maxBulkInFlight,
+            @Value("${admission.retry-after-seconds:1}") int retryAfterSeconds,
+            MeterRegistry meterRegistry) {
+        this.admissionController = new AdmissionController(maxInFlight, maxBulkInFlight, retryAfterSeconds);
+        AdmissionMetrics.bind(admissionController, meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        RequestClass requestClass = RequestClass.classify(request.getMethod().name(), request.getPath().value());
+        if (!admissionController.tryAdmit(requestClass)) {
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER,
+                    Integer.toString(admissionController.getRetryAfterSeconds()));
+            return response.setComplete();
+        }
+        return chain.filter(exchange)
+                .doFinally(signal -> admissionController.release(requestClass));
+    }
+}
@@ -0,0 +1,51 @@
+package net.protsenko.webfluxmodule.web;
+
+import lombok.RequiredArgsConstructor;
+import net.protsenko.common.trace.RequestTimeline;
+import net.protsenko.common.trace.RequestTracer;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Puts a timeline into the Reactor context when the request is sampled. It writes the
+ * Server-Timing header just before the response commits and hands the timeline to the tracer
+ * once the exchange completes. Unsampled requests pass straight through.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@RequiredArgsConstructor
+public class RequestTimingWebFilter implements WebFilter {
+
+    private static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    private final RequestTracer tracer;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        RequestTimeline timeline = tracer.begin();
+        if (!timeline.isSampled()) {
+            return chain.filter(exchange);
+        }
+        ServerHttpRequest request = exchange.getRequest();
+        ServerHttpResponse response = exchange.getResponse();
+        response.beforeCommit(() -> {
+            response.getHeaders().add(SERVER_TIMING_HEADER, tracer.serverTiming(timeline));
+            return Mono.empty();
+        });
+        return chain.filter(exchange)
+                .contextWrite(TimelineContext.with(timeline))
+                .doFinally(signal -> {
+                    HttpStatusCode status = response.getStatusCode();
+                    tracer.finish(timeline, request.getMethod().name(), request.getPath().value(),
+                            status != null ? status.value() : 200);
+                });
+    }
+}
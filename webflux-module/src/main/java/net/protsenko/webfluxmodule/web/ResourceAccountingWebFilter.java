@@ -0,0 +1,50 @@
+package net.protsenko.webfluxmodule.web;
+
+import lombok.RequiredArgsConstructor;
+import net.protsenko.common.accounting.RequestResourceMeter;
+import net.protsenko.common.accounting.ResourceAccount;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import reactor.core.publisher.Mono;
+
+/**
+ * Puts a resource account into the Reactor context when the request is sampled. The handler
+ * chain's assembly is measured directly. Signals are measured by the operator hook (see
+ * {@link AccountingContext}). The total is recorded per route once the exchange completes.
+ * Unsampled requests pass straight through.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+@RequiredArgsConstructor
+public class ResourceAccountingWebFilter implements WebFilter {
+
+    private final RequestResourceMeter meter;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ResourceAccount account = meter.begin();
+        if (!account.isSampled()) {
+            return chain.filter(exchange);
+        }
+        String method = exchange.getRequest().getMethod().name();
+        return Mono.defer(() -> {
+                    try (ResourceAccount.Segment ignored = account.start()) {
+                        return chain.filter(exchange);
+                    }
+                })
+                .contextWrite(AccountingContext.with(account))
+                .doFinally(signal -> {
+                    // Runs inside the segment of the signal that completed the exchange
+                    account.checkpoint();
+                    Object route = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                    meter.record(account, method,
+                            route instanceof PathPattern pattern ? pattern.getPatternString() : "unmatched");
+                });
+    }
+}
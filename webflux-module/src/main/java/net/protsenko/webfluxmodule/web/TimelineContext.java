@@ -0,0 +1,77 @@
+package net.protsenko.webfluxmodule.web;
+
+import net.protsenko.common.trace.RequestTimeline;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+/**
+ * Reactor context counterpart of the servlet modules' thread-bound timeline. Unsampled
+ * requests have no entry, so lookups fall back to {@link RequestTimeline#NOOP}.
+ */
+public final class TimelineContext {
+
+    private TimelineContext() {
+    }
+
+    public static Context with(RequestTimeline timeline) {
+        return Context.of(RequestTimeline.class, timeline);
+    }
+
+    public static RequestTimeline current(ContextView context) {
+        return context.getOrDefault(RequestTimeline.class, RequestTimeline.NOOP);
+    }
+
+    /**
+     * Records the call as one span that starts on subscribe and ends on any terminal signal or
+     * cancel. Reactive calls have no executor queue, so their queue time is zero. Looks the
+     * timeline up in the subscriber context; callers that make several calls per request read
+     * it once and use the overloads that take it.
+     */
+    public static <T> Mono<T> timed(RequestTimeline.Stage stage, Mono<T> call) {
+        return Mono.deferContextual(context -> timed(current(context), stage, call));
+    }
+
+    public static <T> Flux<T> timed(RequestTimeline.Stage stage, Flux<T> call) {
+        return Flux.deferContextual(context -> timed(current(context), stage, call));
+    }
+
+    /**
+     * Returns {@code call} itself for an unsampled timeline.
+     */
+    public static <T> Mono<T> timed(RequestTimeline timeline, RequestTimeline.Stage stage, Mono<T> call) {
+        if (!timeline.isSampled()) {
+            return call;
+        }
+        return Mono.defer(() -> {
+            int handle = timeline.begin(stage);
+            return handle < 0 ? call : call.doFinally(signal -> timeline.end(handle));
+        });
+    }
+
+    public static <T> Flux<T> timed(RequestTimeline timeline, RequestTimeline.Stage stage, Flux<T> call) {
+        if (!timeline.isSampled()) {
+            return call;
+        }
+        return Flux.defer(() -> {
+            int handle = timeline.begin(stage);
+            return handle < 0 ? call : call.doFinally(signal -> timeline.end(handle));
+        });
+    }
+
+    /**
+     * Records a wait, such as for a scheduler slot, as pure queueing. The span is enqueued on
+     * subscribe and ends when the wait terminates or is cancelled. Returns {@code wait} itself
+     * for an unsampled timeline.
+     */
+    public static <T> Mono<T> waited(RequestTimeline timeline, RequestTimeline.Stage stage, Mono<T> wait) {
+        if (!timeline.isSampled()) {
+            return wait;
+        }
+        return Mono.defer(() -> {
+            int handle = timeline.enqueue(stage);
+            return handle < 0 ? wait : wait.doFinally(signal -> timeline.end(handle));
+        });
+    }
+}